@@ -0,0 +1,97 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.Perft;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Legality and game-status checks on an opening, a busy middlegame and a
+ * checkmated position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessGameBenchmark {
+
+    @Param({"start", "middlegame", "checkmate"})
+    public String position;
+
+    private ChessGame game;
+    private List<ChessPosition> moverPieces;
+
+    @Setup
+    public void setUp() throws InvalidMoveException {
+        game = Positions.game(position);
+        moverPieces = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                var piece = game.getBoard().getPiece(ChessPosition.of(row, col));
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    moverPieces.add(ChessPosition.of(row, col));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (ChessPosition piece : moverPieces) {
+            blackhole.consume(game.validMoves(piece));
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemate() {
+        return game.isInStalemate(game.getTeamTurn());
+    }
+
+    /**
+     * The representative positions shared by the benchmarks.
+     */
+    static final class Positions {
+
+        private Positions() {
+        }
+
+        static ChessGame game(String name) throws InvalidMoveException {
+            return switch (name) {
+                case "start" -> new ChessGame();
+                case "middlegame" -> Perft.TEST_POSITIONS.stream()
+                        .filter(testPosition -> testPosition.name().equals("position 6"))
+                        .findFirst().orElseThrow().game();
+                case "checkmate" -> foolsMate();
+                default -> throw new IllegalArgumentException("Unknown position " + name);
+            };
+        }
+
+        private static ChessGame foolsMate() throws InvalidMoveException {
+            ChessGame game = new ChessGame();
+            game.makeMove(new ChessMove(ChessPosition.of(2, 6), ChessPosition.of(3, 6), null));
+            game.makeMove(new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+            game.makeMove(new ChessMove(ChessPosition.of(2, 7), ChessPosition.of(4, 7), null));
+            game.makeMove(new ChessMove(ChessPosition.of(8, 4), ChessPosition.of(4, 8), null));
+            return game;
+        }
+    }
+}
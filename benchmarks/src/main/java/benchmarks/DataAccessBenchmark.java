@@ -0,0 +1,52 @@
+package benchmarks;
+
+import dataaccess.CachingDataAccess;
+import dataaccess.DataAccessException;
+import dataaccess.SqlDataAccess;
+import model.GameData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Game load and save through SqlDataAccess. The module's db.properties points
+ * DatabaseManager at an in-memory H2 database in MySQL mode, so this measures
+ * JDBC, SQL and Gson work without network or disk latency. cachedGetGame
+ * reads the same game through a CachingDataAccess.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataAccessBenchmark {
+
+    private SqlDataAccess dataAccess;
+    private CachingDataAccess cachedDataAccess;
+    private GameData game;
+
+    @Setup
+    public void setUp() throws DataAccessException {
+        dataAccess = new SqlDataAccess();
+        dataAccess.clear();
+        int gameID = dataAccess.createGame("benchmark");
+        game = dataAccess.getGame(gameID);
+        cachedDataAccess = new CachingDataAccess(dataAccess);
+    }
+
+    @Benchmark
+    public GameData getGame() throws DataAccessException {
+        return dataAccess.getGame(game.gameID());
+    }
+
+    @Benchmark
+    public GameData cachedGetGame() throws DataAccessException {
+        return cachedDataAccess.getGame(game.gameID());
+    }
+
+    @Benchmark
+    public GameData updateGame() throws DataAccessException {
+        return dataAccess.updateGame(game);
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+import websocket.messages.LoadGameMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gson round-trips of the objects the server stores and broadcasts on every move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private final Gson gson = new Gson();
+    private ChessGame game;
+    private LoadGameMessage loadGame;
+    private String gameJson;
+    private String loadGameJson;
+
+    @Setup
+    public void setUp() throws InvalidMoveException {
+        game = ChessGameBenchmark.Positions.game("middlegame");
+        loadGame = new LoadGameMessage(game);
+        gameJson = gson.toJson(game);
+        loadGameJson = gson.toJson(loadGame);
+    }
+
+    @Benchmark
+    public String serializeGame() {
+        return gson.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame deserializeGame() {
+        return gson.fromJson(gameJson, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame roundTripGame() {
+        return gson.fromJson(gson.toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public String serializeLoadGame() {
+        return gson.toJson(loadGame);
+    }
+
+    @Benchmark
+    public LoadGameMessage deserializeLoadGame() {
+        return gson.fromJson(loadGameJson, LoadGameMessage.class);
+    }
+}
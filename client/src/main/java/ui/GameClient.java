@@ -190,7 +190,7 @@ public class GameClient implements NotificationHandler{
         var currentBoard = game.getBoard();
         for (int i = 1; i <= 8; i++) {
             for (int j = 1; j <= 8; j++) {
-                var piece = currentBoard.getPiece(new ChessPosition(i, j));
+                var piece = currentBoard.getPiece(ChessPosition.of(i, j));
                 if (piece == null) {
                     board[i-1][j-1] = " ";
                 } else {
@@ -285,7 +285,7 @@ public class GameClient implements NotificationHandler{
         int col = pos.charAt(0) - 'a' + 1;
         int row = Character.getNumericValue(pos.charAt(1));
 
-        return new ChessPosition(row, col);
+        return ChessPosition.of(row, col);
     }
 
     private void printRows(String[][] board, Collection<ChessPosition> highlights, int row, int startCol, int endCol, int colStep) {
@@ -304,7 +304,7 @@ public class GameClient implements NotificationHandler{
     public ChessPosition highlightSquares(int row, int col) {
         int boardRow = row + 1;
         int boardCol = col + 1;
-        ChessPosition currentPos = new ChessPosition(boardRow, boardCol);
+        ChessPosition currentPos = ChessPosition.of(boardRow, boardCol);
 
         return currentPos;
     }
@@ -0,0 +1,286 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import model.*;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps recently used games in memory in front of another {@link DataAccess},
+ * so reading a hot game needs neither a query nor a Gson parse. Everything
+ * but games goes straight to the underlying store.
+ * <p>
+ * The cache holds at most {@code chess.cache.games} games and drops the least
+ * recently used one to make room; an entry is also dropped once it is older
+ * than {@code chess.cache.ttlMillis}, which bounds how stale a game can be if
+ * another server writes it. Writes go to the underlying store first and then
+ * update the cached copy. Callers always get their own copy of a board, so
+ * changing one never changes the cache.
+ * <p>
+ * While a game is being read from the underlying store its entry holds a
+ * placeholder. A write to the game in the meantime removes it, and the board
+ * that was read, which may predate the write, is then not cached.
+ */
+public class CachingDataAccess implements DataAccess {
+
+    private static final int MAX_GAMES = Integer.getInteger("chess.cache.games", 1_000);
+    private static final long TTL_MILLIS = Long.getLong("chess.cache.ttlMillis", 60_000L);
+
+    /**
+     * A snapshot of the cache's counters.
+     *
+     * @param evictions entries dropped for room or because they expired
+     */
+    public record Stats(int size, long hits, long misses, long evictions) {
+
+        public double hitRate() {
+            long reads = hits + misses;
+            return (reads == 0) ? 0 : (double) hits / reads;
+        }
+    }
+
+    // A null game marks a load in progress.
+    private record Entry(GameData game, long expiresAt) {
+    }
+
+    private final DataAccess delegate;
+    private final int maxGames;
+    private final long ttlNanos;
+    private final LinkedHashMap<Integer, Entry> games;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CachingDataAccess(DataAccess delegate) {
+        this(delegate, MAX_GAMES, TTL_MILLIS);
+    }
+
+    public CachingDataAccess(DataAccess delegate, int maxGames, long ttlMillis) {
+        this.delegate = delegate;
+        this.maxGames = maxGames;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.games = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > CachingDataAccess.this.maxGames) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (games) {
+            size = games.size();
+        }
+        return new Stats(size, hits.get(), misses.get(), evictions.get());
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        GameData cached = cached(gameID);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        Entry loading = new Entry(null, 0);
+        synchronized (games) {
+            games.put(gameID, loading);
+        }
+        GameData game = null;
+        try {
+            game = delegate.getGame(gameID);
+        } finally {
+            synchronized (games) {
+                if (games.get(gameID) == loading) {
+                    if (game == null) {
+                        games.remove(gameID);
+                    } else {
+                        games.put(gameID, new Entry(copy(game), System.nanoTime() + ttlNanos));
+                    }
+                }
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Always lists from the underlying store, since the cache can't tell
+     * whether it holds every game, but refreshes the cached copies it has
+     * unless moves were played on them after the list was read.
+     */
+    @Override
+    public List<GameData> getGames() throws DataAccessException {
+        List<GameData> result = delegate.getGames();
+        synchronized (games) {
+            for (GameData game : result) {
+                Entry entry = games.get(game.gameID());
+                if (entry != null && entry.game() != null && game.game().ply() >= entry.game().game().ply()) {
+                    games.put(game.gameID(), new Entry(copy(game), System.nanoTime() + ttlNanos));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Updates the cached copy if there is one. Its board is kept if moves
+     * were appended past the board written here.
+     */
+    @Override
+    public GameData updateGame(GameData gameID) throws DataAccessException {
+        GameData updated = delegate.updateGame(gameID);
+        synchronized (games) {
+            Entry entry = games.get(updated.gameID());
+            if (entry != null && entry.game() == null) {
+                games.remove(updated.gameID());
+            } else if (entry != null) {
+                ChessGame board = entry.game().game();
+                if (updated.game().ply() >= board.ply()) {
+                    board = new ChessGame(updated.game());
+                }
+                games.put(updated.gameID(), new Entry(new GameData(updated.gameID(), updated.whiteUsername(),
+                        updated.blackUsername(), updated.gameName(), board, updated.playerColor()),
+                        System.nanoTime() + ttlNanos));
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Saves the snapshots, then updates the cached boards that are behind
+     * them.
+     */
+    @Override
+    public void saveGames(Collection<GameData> snapshots) throws DataAccessException {
+        delegate.saveGames(snapshots);
+        synchronized (games) {
+            for (GameData snapshot : snapshots) {
+                Entry entry = games.get(snapshot.gameID());
+                if (entry != null && entry.game() != null && entry.game().game().ply() < snapshot.game().ply()) {
+                    GameData cached = entry.game();
+                    games.put(snapshot.gameID(), new Entry(new GameData(cached.gameID(), cached.whiteUsername(),
+                            cached.blackUsername(), cached.gameName(), new ChessGame(snapshot.game()),
+                            cached.playerColor()), entry.expiresAt()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the moves, then plays them on the cached boards. A cached board
+     * that can't take a move in sequence, or a game being loaded, is dropped
+     * and read again next time.
+     */
+    @Override
+    public void appendMoves(List<GameMove> moves) throws DataAccessException {
+        delegate.appendMoves(moves);
+        synchronized (games) {
+            for (GameMove move : moves) {
+                Entry entry = games.get(move.gameID());
+                if (entry == null) {
+                    continue;
+                }
+                if (entry.game() == null) {
+                    games.remove(move.gameID());
+                    continue;
+                }
+                ChessGame board = entry.game().game();
+                if (move.ply() > board.ply() && !play(board, move)) {
+                    games.remove(move.gameID());
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<GameMove> getMoves(int gameID) throws DataAccessException {
+        return delegate.getMoves(gameID);
+    }
+
+    @Override
+    public int createGame(String gameName) throws DataAccessException {
+        return delegate.createGame(gameName);
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        delegate.clear();
+        synchronized (games) {
+            games.clear();
+        }
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        return delegate.getUser(username);
+    }
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        delegate.createUser(user);
+    }
+
+    @Override
+    public void addAuth(AuthData authToken) throws DataAccessException {
+        delegate.addAuth(authToken);
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        return delegate.getAuth(authToken);
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        delegate.deleteAuth(authToken);
+    }
+
+    /**
+     * @return a copy of the cached game, or null if it isn't cached or has expired
+     */
+    private GameData cached(int gameID) {
+        synchronized (games) {
+            Entry entry = games.get(gameID);
+            if (entry == null || entry.game() == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAt() >= 0) {
+                games.remove(gameID);
+                evictions.incrementAndGet();
+                return null;
+            }
+            return copy(entry.game());
+        }
+    }
+
+    private static boolean play(ChessGame board, GameMove move) {
+        if (move.ply() != board.ply() + 1) {
+            return false;
+        }
+        try {
+            board.makeMove(PackedMove.toChessMove(move.move()));
+            return true;
+        } catch (InvalidMoveException e) {
+            return false;
+        }
+    }
+
+    // Only the board is mutable.
+    private static GameData copy(GameData game) {
+        return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                new ChessGame(game.game()), game.playerColor());
+    }
+}
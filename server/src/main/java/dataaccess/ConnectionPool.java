@@ -0,0 +1,398 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of JDBC connections. {@link #borrow()} hands out a wrapper
+ * around a pooled connection whose {@code close()} puts it back, so callers
+ * keep using try-with-resources exactly as they would with a fresh
+ * connection.
+ * <p>
+ * Idle connections are reused most-recently-returned first, which keeps the
+ * warmest ones busy and lets the rest age out. A connection is checked with
+ * {@link Connection#isValid} before it is handed out, is retired once it
+ * reaches the maximum lifetime, and is closed by a background sweep after it
+ * has been idle too long.
+ * <p>
+ * Each connection also keeps a {@link StatementCache}, so a
+ * {@code prepareStatement} call with SQL the connection has seen before gets
+ * back the statement it already prepared.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new physical connection, ready to use.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * Pool limits, read from {@code db.pool.*} entries in db.properties.
+     *
+     * @param maxSize           most connections open at once, idle or borrowed
+     * @param maxWaitMillis     how long {@link #borrow()} waits for a free connection
+     * @param idleTimeoutMillis an idle connection older than this is closed
+     * @param maxLifetimeMillis a connection older than this is closed when next returned or borrowed
+     * @param validationTimeoutSeconds passed to {@link Connection#isValid} on borrow
+     * @param statementCacheSize prepared statements kept open per connection; 0 turns the cache off
+     */
+    public record Settings(int maxSize, long maxWaitMillis, long idleTimeoutMillis, long maxLifetimeMillis,
+                           int validationTimeoutSeconds, int statementCacheSize) {
+
+        public static Settings fromProperties(Properties props) {
+            return new Settings(
+                    Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                    Long.parseLong(props.getProperty("db.pool.maxWaitMillis", "5000")),
+                    Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", "300000")),
+                    Long.parseLong(props.getProperty("db.pool.maxLifetimeMillis", "1800000")),
+                    Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds", "2")),
+                    Integer.parseInt(props.getProperty("db.pool.statementCacheSize", "32")));
+        }
+    }
+
+    /**
+     * A snapshot of the pool's counters.
+     *
+     * @param totalWaitNanos time spent in {@link #borrow()} waiting for a connection, summed over all borrows
+     * @param maxWaitNanos   the longest single wait
+     * @param timeouts       borrows that gave up after {@link Settings#maxWaitMillis()}
+     * @param statementHits  prepared statements served from a connection's statement cache
+     */
+    public record Stats(int open, int idle, long borrows, long created, long retired, long timeouts,
+                        long totalWaitNanos, long maxWaitNanos, long statementHits, long statementMisses) {
+
+        public double averageWaitMillis() {
+            return (borrows == 0) ? 0 : totalWaitNanos / 1e6 / borrows;
+        }
+    }
+
+    private final ConnectionFactory factory;
+    private final Settings settings;
+    private final Semaphore permits;
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService sweeper;
+    private int open;
+    private boolean closed;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong retired = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+
+    public ConnectionPool(ConnectionFactory factory, Settings settings) {
+        if (settings.maxSize() < 1) {
+            throw new IllegalArgumentException("db.pool.maxSize must be at least 1");
+        }
+        this.factory = factory;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.maxSize(), true);
+
+        long sweepMillis = Math.max(1_000, settings.idleTimeoutMillis() / 2);
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::evictIdle, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to {@link Settings#maxWaitMillis()} if
+     * all of them are in use. Close the returned connection to give it back.
+     */
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(settings.maxWaitMillis(), TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("timed out after " + settings.maxWaitMillis()
+                        + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = openConnection();
+            }
+            borrows.incrementAndGet();
+            return pooled.lend();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public Stats stats() {
+        int openNow;
+        int idleNow;
+        synchronized (this) {
+            openNow = open;
+            idleNow = idle.size();
+        }
+        return new Stats(openNow, idleNow, borrows.get(), created.get(), retired.get(), timeouts.get(),
+                totalWaitNanos.get(), maxWaitNanos.get(), statementHits.get(), statementMisses.get());
+    }
+
+    /**
+     * Closes the idle connections and stops the sweeper. Borrowed connections
+     * are closed as they are returned.
+     */
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        ArrayDeque<PooledConnection> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            idle.clear();
+        }
+        toClose.forEach(this::retire);
+    }
+
+    /**
+     * Pops idle connections until one passes validation; the ones that fail
+     * are closed on the way.
+     */
+    private PooledConnection takeIdle() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (this) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            if (!pooled.isExpired(System.currentTimeMillis()) && pooled.isValid()) {
+                return pooled;
+            }
+            retire(pooled);
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        synchronized (this) {
+            if (closed) {
+                throw new SQLException("connection pool is closed");
+            }
+            open++;
+        }
+        try {
+            PooledConnection pooled = new PooledConnection(factory.open(), System.currentTimeMillis());
+            created.incrementAndGet();
+            return pooled;
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                open--;
+            }
+            throw e;
+        }
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        boolean keep = pooled.reset() && !pooled.isExpired(System.currentTimeMillis());
+        synchronized (this) {
+            if (keep && !closed) {
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.addFirst(pooled);
+                pooled = null;
+            }
+        }
+        if (pooled != null) {
+            retire(pooled);
+        }
+        permits.release();
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        ArrayDeque<PooledConnection> stale = new ArrayDeque<>();
+        synchronized (this) {
+            for (Iterator<PooledConnection> it = idle.iterator(); it.hasNext(); ) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.lastUsed >= settings.idleTimeoutMillis() || pooled.isExpired(now)) {
+                    it.remove();
+                    stale.add(pooled);
+                }
+            }
+        }
+        stale.forEach(this::retire);
+    }
+
+    private void retire(PooledConnection pooled) {
+        synchronized (this) {
+            open--;
+        }
+        retired.incrementAndGet();
+        pooled.statements.closeAll();
+        try {
+            pooled.physical.close();
+        } catch (SQLException ignored) {
+            // It is being thrown away either way.
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * One physical connection and its bookkeeping. Each loan gets its own
+     * proxy so a caller that closes twice, or keeps using a connection after
+     * closing it, cannot touch the next borrower's loan.
+     */
+    private final class PooledConnection {
+
+        final Connection physical;
+        final StatementCache statements;
+        final long createdAt;
+        long lastUsed;
+
+        PooledConnection(Connection physical, long createdAt) {
+            this.physical = physical;
+            this.statements = new StatementCache(physical, settings.statementCacheSize(),
+                    statementHits, statementMisses);
+            this.createdAt = createdAt;
+            this.lastUsed = createdAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - createdAt >= settings.maxLifetimeMillis();
+        }
+
+        boolean isValid() {
+            try {
+                return physical.isValid(settings.validationTimeoutSeconds());
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Undoes anything a borrower may have left behind: an open
+         * transaction, autocommit switched off or a statement left open.
+         */
+        boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                statements.releaseAll();
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        Connection lend() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Loan(this));
+        }
+    }
+
+    private final class Loan implements InvocationHandler {
+
+        private PooledConnection pooled;
+
+        Loan(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    PooledConnection returning;
+                    synchronized (this) {
+                        returning = pooled;
+                        pooled = null;
+                    }
+                    if (returning != null) {
+                        giveBack(returning);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    synchronized (this) {
+                        if (pooled == null) {
+                            return true;
+                        }
+                    }
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    PooledConnection current = pooled;
+                    return (current == null) ? "returned pooled connection" : "pooled " + current.physical;
+                }
+                default -> {
+                }
+            }
+
+            PooledConnection current;
+            synchronized (this) {
+                current = pooled;
+            }
+            if (current == null) {
+                throw new SQLException("connection has been returned to the pool");
+            }
+            if (method.getName().equals("prepareStatement") && isCacheable(method)) {
+                int autoGeneratedKeys = (args.length == 2) ? (int) args[1] : Statement.NO_GENERATED_KEYS;
+                PreparedStatement cached = current.statements.prepare((String) args[0], autoGeneratedKeys,
+                        (Connection) proxy);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            try {
+                return method.invoke(current.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Only {@code prepareStatement(sql)} and
+         * {@code prepareStatement(sql, autoGeneratedKeys)} are cached.
+         */
+        private static boolean isCacheable(Method method) {
+            Class<?>[] parameters = method.getParameterTypes();
+            return parameters.length == 1 || (parameters.length == 2 && parameters[1] == int.class);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package dataaccess;
 
 import model.*;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface DataAccess {
@@ -17,5 +18,35 @@ public interface DataAccess {
     List<GameData> getGames() throws DataAccessException;
     GameData updateGame(GameData gameID) throws DataAccessException;
 
+    /**
+     * Appends moves to the log of the games they were played in. A game read
+     * back afterwards includes them.
+     */
+    void appendMoves(List<GameMove> moves) throws DataAccessException;
+
+    /**
+     * @return every move logged for the game, in the order they were played
+     */
+    List<GameMove> getMoves(int gameID) throws DataAccessException;
+
+    /**
+     * Saves the board of each game, leaving its players and name as they are
+     * stored. Games that no longer exist are skipped.
+     */
+    default void saveGames(Collection<GameData> games) throws DataAccessException {
+        for (GameData game : games) {
+            GameData stored;
+            try {
+                stored = getGame(game.gameID());
+            } catch (DataAccessException e) {
+                continue;
+            }
+            if (stored != null) {
+                updateGame(new GameData(stored.gameID(), stored.whiteUsername(), stored.blackUsername(),
+                        stored.gameName(), game.game(), stored.playerColor()));
+            }
+        }
+    }
+
 
 }
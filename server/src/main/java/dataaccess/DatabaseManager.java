@@ -8,6 +8,7 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static ConnectionPool pool;
 
     /*
      * Load the database information for the db.properties file.
@@ -17,10 +18,11 @@ public class DatabaseManager {
     }
 
     /**
-     * Creates the database if it does not already exist.
+     * Creates the database if it does not already exist. CREATE SCHEMA is MySQL's
+     * synonym for CREATE DATABASE and is also understood by embedded databases.
      */
     static public void createDatabase() throws DataAccessException {
-        var statement = "CREATE DATABASE IF NOT EXISTS " + databaseName;
+        var statement = "CREATE SCHEMA IF NOT EXISTS " + databaseName;
         try (var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
              var preparedStatement = conn.prepareStatement(statement)) {
             preparedStatement.executeUpdate();
@@ -30,10 +32,10 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrows a connection from the pool, with its catalog set to the database
+     * specified in db.properties. You must close the connection when you are
+     * done with it, which returns it to the pool. The easiest way to do that is
+     * with a try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DatabaseManager.getConnection()) {
@@ -44,14 +46,30 @@ public class DatabaseManager {
     static Connection getConnection() throws DataAccessException {
         try {
             //do not wrap the following line with a try-with-resources
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
-            conn.setCatalog(databaseName);
-            return conn;
+            return pool.borrow();
         } catch (SQLException ex) {
             throw new DataAccessException("failed to get connection", ex);
         }
     }
 
+    /**
+     * Connection counts and wait times for the pool behind {@link #getConnection()}.
+     */
+    public static ConnectionPool.Stats poolStats() {
+        return pool.stats();
+    }
+
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
+        try {
+            conn.setCatalog(databaseName);
+        } catch (SQLException ex) {
+            conn.close();
+            throw ex;
+        }
+        return conn;
+    }
+
     private static void loadPropertiesFromResources() {
         try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
             if (propStream == null) {
@@ -69,9 +87,19 @@ public class DatabaseManager {
         databaseName = props.getProperty("db.name");
         dbUsername = props.getProperty("db.user");
         dbPassword = props.getProperty("db.password");
+        pool = new ConnectionPool(DatabaseManager::openConnection, ConnectionPool.Settings.fromProperties(props));
+
+        // db.url replaces the MySQL host/port, e.g. to point benchmarks at an embedded database.
+        var url = props.getProperty("db.url");
+        if (url != null) {
+            connectionUrl = url;
+            return;
+        }
 
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
-        connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+        // Server-side prepared statements are parsed and planned once by MySQL; cachePrepStmts keeps the
+        // driver from preparing them again on a connection that has already seen the SQL.
+        connectionUrl = String.format("jdbc:mysql://%s:%d?useServerPrepStmts=true&cachePrepStmts=true", host, port);
     }
 }
@@ -0,0 +1,10 @@
+package dataaccess;
+
+/**
+ * Indicates the requested game is not in the database
+ */
+public class GameNotFoundException extends DataAccessException {
+    public GameNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -1,19 +1,30 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.InvalidMoveException;
+import chess.PackedMove;
 import model.AuthData;
 import model.GameData;
+import model.GameMove;
 import model.UserData;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
+/**
+ * Keeps everything in maps. Like {@link SqlDataAccess}, a stored game is a
+ * snapshot plus the moves logged after it, and callers get their own copy
+ * of each game they read.
+ */
 public class MemoryDataAccess implements DataAccess{
     private final HashMap<String, UserData> users = new HashMap<>();
     private final Map<String, AuthData> authTokens = new HashMap<>();
     private final Map<Integer, GameData> games = new HashMap<>();
+    private final Map<Integer, TreeMap<Integer, GameMove>> gameMoves = new HashMap<>();
+    private int nextGameID = 1;
 
 
     @Override
@@ -43,26 +54,72 @@ public class MemoryDataAccess implements DataAccess{
 
     @Override
     public int createGame(String gameName) {
-        GameData newGame = new GameData(1, null, null, gameName, new ChessGame(), null);
-        games.put(1, newGame);
+        GameData newGame = new GameData(nextGameID++, null, null, gameName, new ChessGame(), null);
+        games.put(newGame.gameID(), newGame);
         return newGame.gameID();
     }
 
     //toString and fromString function in the game to serialize and deserialize the game.
     @Override
-    public GameData getGame(int gameID) {
-        return games.get(gameID);
+    public GameData getGame(int gameID) throws DataAccessException {
+        GameData snapshot = games.get(gameID);
+        return (snapshot == null) ? null : withLoggedMoves(snapshot);
     }
 
     @Override
-    public List<GameData> getGames() {
-        return new ArrayList<>(games.values());
+    public List<GameData> getGames() throws DataAccessException {
+        List<GameData> result = new ArrayList<>();
+        for (GameData snapshot : games.values()) {
+            result.add(withLoggedMoves(snapshot));
+        }
+        return result;
     }
 
     @Override
-    public GameData updateGame(GameData gameUpdate) {
-        GameData updatedGame = games.replace(gameUpdate.gameID(), gameUpdate);
-        return games.get(updatedGame.gameID());
+    public GameData updateGame(GameData gameUpdate) throws DataAccessException {
+        if (games.replace(gameUpdate.gameID(), copy(gameUpdate)) == null) {
+            throw new GameNotFoundException("Error: Game not found");
+        }
+        return gameUpdate;
+    }
+
+    /**
+     * Logs each move under its ply; a ply already logged for the game is
+     * ignored, as SqlDataAccess's INSERT IGNORE does.
+     */
+    @Override
+    public void appendMoves(List<GameMove> moves) {
+        for (GameMove move : moves) {
+            if (games.containsKey(move.gameID())) {
+                gameMoves.computeIfAbsent(move.gameID(), id -> new TreeMap<>()).putIfAbsent(move.ply(), move);
+            }
+        }
+    }
+
+    @Override
+    public List<GameMove> getMoves(int gameID) {
+        return new ArrayList<>(gameMoves.getOrDefault(gameID, new TreeMap<>()).values());
+    }
+
+    private GameData withLoggedMoves(GameData snapshot) throws DataAccessException {
+        GameData game = copy(snapshot);
+        TreeMap<Integer, GameMove> moves = gameMoves.getOrDefault(game.gameID(), new TreeMap<>());
+        for (GameMove move : moves.tailMap(game.game().ply(), false).values()) {
+            if (move.ply() != game.game().ply() + 1) {
+                throw new DataAccessException("Error: move log skips from ply " + game.game().ply() + " to " + move.ply());
+            }
+            try {
+                game.game().makeMove(PackedMove.toChessMove(move.move()));
+            } catch (InvalidMoveException e) {
+                throw new DataAccessException("Error: illegal move in the move log", e);
+            }
+        }
+        return game;
+    }
+
+    private static GameData copy(GameData game) {
+        return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                new ChessGame(game.game()), game.playerColor());
     }
 
     @Override
@@ -70,5 +127,6 @@ public class MemoryDataAccess implements DataAccess{
         users.clear();
         authTokens.clear();
         games.clear();
+        gameMoves.clear();
     }
 }
@@ -1,17 +1,44 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.InvalidMoveException;
+import chess.PackedMove;
 import com.google.gson.Gson;
 import model.AuthData;
 import model.GameData;
+import model.GameMove;
 import model.UserData;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 
 public class SqlDataAccess implements DataAccess {
+
+    // The fixed query set. Each pooled connection caches the statements it
+    // prepares by SQL text, so these are parsed once per connection.
+    private static final String SELECT_USER = "SELECT username, password, email FROM users WHERE username=?";
+    private static final String INSERT_USER = "INSERT INTO users (username, password, email) VALUES (?, ?, ?)";
+    private static final String INSERT_AUTH = "INSERT INTO auth (authToken, username) VALUES (?, ?)";
+    private static final String SELECT_AUTH = "SELECT authToken, username FROM auth WHERE authToken=?";
+    private static final String DELETE_AUTH = "DELETE FROM auth WHERE authToken=?";
+    private static final String INSERT_GAME = "INSERT INTO games (gameName, game) VALUES (?, ?)";
+    private static final String SELECT_GAME =
+            "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM games WHERE gameID=?";
+    private static final String SELECT_GAMES = "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM games";
+    private static final String UPDATE_GAME =
+            "UPDATE games SET whiteUsername=?, blackUsername=?, game=?, snapshotPly=? WHERE gameID=?";
+    private static final String UPDATE_BOARD = "UPDATE games SET game=?, snapshotPly=? WHERE gameID=? AND snapshotPly<?";
+    private static final String INSERT_MOVE = "INSERT IGNORE INTO game_moves (gameID, ply, move) VALUES (?, ?, ?)";
+    private static final String SELECT_MOVES = "SELECT ply, move FROM game_moves WHERE gameID=? AND ply>? ORDER BY ply";
+    private static final String SELECT_UNSNAPSHOT_MOVES = """
+            SELECT m.gameID, m.ply, m.move FROM game_moves m JOIN games g ON g.gameID = m.gameID
+            WHERE m.ply > g.snapshotPly ORDER BY m.gameID, m.ply""";
+
     public SqlDataAccess() {
         try {
             DatabaseManager.createDatabase();
@@ -26,7 +53,7 @@ public class SqlDataAccess implements DataAccess {
     @Override
     public UserData getUser(String username) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var preparedStatement = conn.prepareStatement("SELECT username, password, email FROM users WHERE username=?")) {
+            try (var preparedStatement = conn.prepareStatement(SELECT_USER)) {
                 preparedStatement.setString(1, username);
                 try (var rs = preparedStatement.executeQuery()) {
                     if (rs.next()) {
@@ -44,7 +71,7 @@ public class SqlDataAccess implements DataAccess {
     @Override
     public void createUser(UserData user) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var preparedStatement = conn.prepareStatement("INSERT INTO users (username, password, email) VALUES (?, ?, ?)")) {
+            try (var preparedStatement = conn.prepareStatement(INSERT_USER)) {
                 preparedStatement.setString(1, user.username());
                 preparedStatement.setString(2, user.password());
                 preparedStatement.setString(3, user.email());
@@ -59,6 +86,7 @@ public class SqlDataAccess implements DataAccess {
     public void clear() throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
             try (var preparedStatement = conn.createStatement()) {
+                preparedStatement.executeUpdate("DELETE FROM game_moves");
                 preparedStatement.executeUpdate("DELETE FROM auth");
                 preparedStatement.executeUpdate("DELETE FROM users");
                 preparedStatement.executeUpdate("DELETE FROM games");
@@ -73,7 +101,7 @@ public class SqlDataAccess implements DataAccess {
     @Override
     public void addAuth(AuthData authToken) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var preparedStatement = conn.prepareStatement("INSERT INTO auth (authToken, username) VALUES (?, ?)")) {
+            try (var preparedStatement = conn.prepareStatement(INSERT_AUTH)) {
                 preparedStatement.setString(1, authToken.authToken());
                 preparedStatement.setString(2, authToken.username());
                 preparedStatement.executeUpdate();
@@ -86,7 +114,7 @@ public class SqlDataAccess implements DataAccess {
     @Override
     public AuthData getAuth(String authToken) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var preparedStatement = conn.prepareStatement("SELECT authToken, username FROM auth WHERE authToken=?")) {
+            try (var preparedStatement = conn.prepareStatement(SELECT_AUTH)) {
                 preparedStatement.setString(1, authToken);
                 try (var rs = preparedStatement.executeQuery()) {
                     if (rs.next()) {
@@ -103,7 +131,7 @@ public class SqlDataAccess implements DataAccess {
     @Override
     public void deleteAuth(String authToken) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var preparedStatement = conn.prepareStatement("DELETE FROM auth WHERE authToken=?")) {
+            try (var preparedStatement = conn.prepareStatement(DELETE_AUTH)) {
                 preparedStatement.setString(1, authToken);
                 preparedStatement.executeUpdate();
             }
@@ -116,8 +144,7 @@ public class SqlDataAccess implements DataAccess {
     public int createGame(String gameName) throws DataAccessException {
         String serializedGame = new Gson().toJson(new ChessGame());
         try (var conn = DatabaseManager.getConnection()) {
-            try (var preparedStatement = conn.prepareStatement(
-                    "INSERT INTO games (gameName, game) VALUES (?, ?)",
+            try (var preparedStatement = conn.prepareStatement(INSERT_GAME,
                     Statement.RETURN_GENERATED_KEYS)) {
                 preparedStatement.setString(1, gameName);
                 preparedStatement.setString(2, serializedGame);
@@ -138,13 +165,13 @@ public class SqlDataAccess implements DataAccess {
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var preparedStatement = conn.prepareStatement(
-                    "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM games WHERE gameID=?")) {
+            try (var preparedStatement = conn.prepareStatement(SELECT_GAME)) {
                 preparedStatement.setInt(1, gameID);
+                GameData game;
                 try (var rs = preparedStatement.executeQuery()) {
                     if (rs.next()) {
                         ChessGame deserializedGame = new Gson().fromJson(rs.getString("game"), ChessGame.class);
-                        return new GameData(
+                        game = new GameData(
                                 rs.getInt("gameID"),
                                 rs.getString("whiteUsername"),
                                 rs.getString("blackUsername"),
@@ -153,10 +180,22 @@ public class SqlDataAccess implements DataAccess {
                                 null);
 
                     } else {
-                        throw new DataAccessException("Error: Game not found");
+                        throw new GameNotFoundException("Error: Game not found");
+                    }
+                }
+                try (var movesStatement = conn.prepareStatement(SELECT_MOVES)) {
+                    movesStatement.setInt(1, gameID);
+                    movesStatement.setInt(2, game.game().ply());
+                    try (var rs = movesStatement.executeQuery()) {
+                        while (rs.next()) {
+                            replay(game.game(), rs.getInt("ply"), rs.getInt("move"));
+                        }
                     }
                 }
+                return game;
             }
+        } catch (GameNotFoundException e) {
+            throw e;
         } catch (SQLException | DataAccessException e) {
             throw new DataAccessException("Error: couldn't connect to the database.");
         }
@@ -166,7 +205,7 @@ public class SqlDataAccess implements DataAccess {
     public List<GameData> getGames() throws DataAccessException {
         var result = new ArrayList<GameData>();
         try (var conn = DatabaseManager.getConnection()) {
-            try (var prepareStatement = conn.prepareStatement("SELECT gameID, whiteUsername, blackUsername, gameName, game FROM games")) {
+            try (var prepareStatement = conn.prepareStatement(SELECT_GAMES)) {
                 try (var rs = prepareStatement.executeQuery()) {
                     while (rs.next()) {
                         ChessGame deserializedGame = new Gson().fromJson(rs.getString("game"), ChessGame.class);
@@ -181,6 +220,7 @@ public class SqlDataAccess implements DataAccess {
                     }
                 }
             }
+            replayUnsnapshotMoves(conn, result);
         } catch (SQLException | DataAccessException e) {
             throw new DataAccessException("Error: couldn't connect to the database.");
         }
@@ -191,23 +231,146 @@ public class SqlDataAccess implements DataAccess {
     public GameData updateGame(GameData gameID) throws DataAccessException {
         Gson gson = new Gson();
         String serializedGame = gson.toJson(gameID.game());
+        int updated;
         try (var conn = DatabaseManager.getConnection()) {
-            try (var preparedStatement = conn.prepareStatement("UPDATE games SET whiteUsername=?, blackUsername=?, game=? WHERE gameID=?")) {
+            try (var preparedStatement = conn.prepareStatement(UPDATE_GAME)) {
                 preparedStatement.setString(1, gameID.whiteUsername());
                 preparedStatement.setString(2, gameID.blackUsername());
                 preparedStatement.setString(3, serializedGame);
-                preparedStatement.setInt(4, gameID.gameID());
-                preparedStatement.executeUpdate();
-                GameData updatedGame = getGame(gameID.gameID());
-                if (updatedGame != null) {
-                    return updatedGame;
-                } else {
-                    return gameID;
+                preparedStatement.setInt(4, gameID.game().ply());
+                preparedStatement.setInt(5, gameID.gameID());
+                updated = preparedStatement.executeUpdate();
+            }
+        } catch (SQLException | DataAccessException e) {
+            throw new DataAccessException("Error: couldn't connect to the database.");
+        }
+        if (updated == 0) {
+            throw new GameNotFoundException("Error: Game not found");
+        }
+        // The row now holds exactly what was written, so there is no need to read it back.
+        return new GameData(gameID.gameID(),
+                gameID.whiteUsername(),
+                gameID.blackUsername(),
+                gameID.gameName(),
+                gameID.game(),
+                null);
+    }
+
+    /**
+     * Writes every board as a new snapshot, in one JDBC batch and one
+     * transaction. A board is skipped if the stored snapshot is already at
+     * or past its ply.
+     */
+    @Override
+    public void saveGames(Collection<GameData> games) throws DataAccessException {
+        if (games.isEmpty()) {
+            return;
+        }
+        Gson gson = new Gson();
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (var preparedStatement = conn.prepareStatement(UPDATE_BOARD)) {
+                for (GameData game : games) {
+                    int ply = game.game().ply();
+                    preparedStatement.setString(1, gson.toJson(game.game()));
+                    preparedStatement.setInt(2, ply);
+                    preparedStatement.setInt(3, game.gameID());
+                    preparedStatement.setInt(4, ply);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | DataAccessException e) {
+            throw new DataAccessException("Error: couldn't save games to the database.", e);
+        }
+    }
+
+    /**
+     * Appends the moves in one JDBC batch and one transaction. A move whose
+     * ply is already logged for its game is ignored, so a batch can safely
+     * be retried.
+     */
+    @Override
+    public void appendMoves(List<GameMove> moves) throws DataAccessException {
+        if (moves.isEmpty()) {
+            return;
+        }
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (var preparedStatement = conn.prepareStatement(INSERT_MOVE)) {
+                for (GameMove move : moves) {
+                    preparedStatement.setInt(1, move.gameID());
+                    preparedStatement.setInt(2, move.ply());
+                    preparedStatement.setInt(3, move.move());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | DataAccessException e) {
+            throw new DataAccessException("Error: couldn't save moves to the database.", e);
+        }
+    }
+
+    @Override
+    public List<GameMove> getMoves(int gameID) throws DataAccessException {
+        var result = new ArrayList<GameMove>();
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var preparedStatement = conn.prepareStatement(SELECT_MOVES)) {
+                preparedStatement.setInt(1, gameID);
+                preparedStatement.setInt(2, 0);
+                try (var rs = preparedStatement.executeQuery()) {
+                    while (rs.next()) {
+                        result.add(new GameMove(gameID, rs.getInt("ply"), rs.getInt("move")));
+                    }
                 }
             }
         } catch (SQLException | DataAccessException e) {
             throw new DataAccessException("Error: couldn't connect to the database.");
         }
+        return result;
+    }
+
+    /**
+     * Brings each listed game from its snapshot up to date with the moves
+     * logged after it, fetched for all games in one query.
+     */
+    private static void replayUnsnapshotMoves(Connection conn, List<GameData> games) throws SQLException {
+        var byId = new HashMap<Integer, ChessGame>();
+        for (GameData game : games) {
+            byId.put(game.gameID(), game.game());
+        }
+        try (var preparedStatement = conn.prepareStatement(SELECT_UNSNAPSHOT_MOVES);
+             var rs = preparedStatement.executeQuery()) {
+            while (rs.next()) {
+                ChessGame game = byId.get(rs.getInt("gameID"));
+                if (game != null) {
+                    replay(game, rs.getInt("ply"), rs.getInt("move"));
+                }
+            }
+        }
+    }
+
+    private static void replay(ChessGame game, int ply, int move) throws SQLException {
+        if (ply != game.ply() + 1) {
+            throw new SQLException("move log for a game skips from ply " + game.ply() + " to " + ply);
+        }
+        try {
+            game.makeMove(PackedMove.toChessMove(move));
+        } catch (InvalidMoveException e) {
+            throw new SQLException("move log holds an illegal move at ply " + ply, e);
+        }
     }
 
     private void createTables() throws SQLException {
@@ -235,7 +398,19 @@ public class SqlDataAccess implements DataAccess {
                             whiteUsername VARCHAR(255),
                             blackUsername VARCHAR(255),
                             gameName VARCHAR(255) NOT NULL,
-                            game LONGTEXT NOT NULL
+                            game LONGTEXT NOT NULL,
+                            snapshotPly INT NOT NULL DEFAULT 0
+                        )
+                """);
+                addSnapshotPlyColumn(conn);
+
+                statement.executeUpdate("""
+                        CREATE TABLE IF NOT EXISTS game_moves (
+                            gameID INT NOT NULL,
+                            ply INT NOT NULL,
+                            move INT NOT NULL,
+                            PRIMARY KEY (gameID, ply),
+                            FOREIGN KEY (gameID) REFERENCES games(gameID) ON DELETE CASCADE
                         )
                 """);
             }
@@ -243,4 +418,35 @@ public class SqlDataAccess implements DataAccess {
             throw new RuntimeException("Error: tables can't be created", e);
         }
     }
+
+    /**
+     * Games tables made before the move log have no snapshotPly column; their
+     * snapshots are the whole game, so the default of 0 would be wrong for
+     * them and it is filled in from each stored board.
+     */
+    private static void addSnapshotPlyColumn(Connection conn) throws SQLException {
+        try (var statement = conn.createStatement();
+             var rs = statement.executeQuery("SELECT * FROM games WHERE 1=0")) {
+            var metaData = rs.getMetaData();
+            for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                if ("snapshotPly".equalsIgnoreCase(metaData.getColumnLabel(column))) {
+                    return;
+                }
+            }
+        }
+        try (var statement = conn.createStatement()) {
+            statement.executeUpdate("ALTER TABLE games ADD COLUMN snapshotPly INT NOT NULL DEFAULT 0");
+        }
+        var gson = new Gson();
+        try (var select = conn.prepareStatement("SELECT gameID, game FROM games");
+             var update = conn.prepareStatement("UPDATE games SET snapshotPly=? WHERE gameID=?");
+             var rs = select.executeQuery()) {
+            while (rs.next()) {
+                update.setInt(1, gson.fromJson(rs.getString("game"), ChessGame.class).ply());
+                update.setInt(2, rs.getInt("gameID"));
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+    }
 }
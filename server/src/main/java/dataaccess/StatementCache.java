@@ -0,0 +1,190 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepared statements kept open on one pooled connection, keyed by their SQL,
+ * so the data access queries are parsed and planned once per connection
+ * instead of once per call. The least recently used statement is closed when
+ * the cache is full.
+ * <p>
+ * Callers get a wrapper whose {@code close()} clears the parameters and puts
+ * the statement back in the cache. If the same SQL is prepared again while
+ * its cached statement is still open, the second one is a plain uncached
+ * statement.
+ */
+final class StatementCache {
+
+    private final Connection physical;
+    private final int capacity;
+    private final Map<String, Entry> statements = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /**
+     * @param hits   counts statements served from the cache, shared by every connection in the pool
+     * @param misses counts statements prepared for the cache
+     */
+    StatementCache(Connection physical, int capacity, AtomicLong hits, AtomicLong misses) {
+        this.physical = physical;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Returns the cached statement for {@code sql}, preparing it on a miss,
+     * or null when caching does not apply and the caller should prepare the
+     * statement directly.
+     *
+     * @param owner the connection that {@link PreparedStatement#getConnection()} should return
+     */
+    synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys, Connection owner) throws SQLException {
+        if (capacity == 0) {
+            return null;
+        }
+        String key = autoGeneratedKeys + ":" + sql;
+        Entry entry = statements.get(key);
+        if (entry != null && entry.loan != null) {
+            return null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            entry = new Entry(physical.prepareStatement(sql, autoGeneratedKeys));
+            statements.put(key, entry);
+            evictOverCapacity();
+        } else {
+            hits.incrementAndGet();
+        }
+        entry.loan = new Loan(entry, owner);
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, entry.loan);
+    }
+
+    /**
+     * Takes back any statement the last borrower of the connection forgot to
+     * close.
+     */
+    synchronized void releaseAll() {
+        var loans = new ArrayList<Loan>();
+        for (Entry entry : statements.values()) {
+            if (entry.loan != null) {
+                loans.add(entry.loan);
+            }
+        }
+        loans.forEach(Loan::release);
+    }
+
+    synchronized void closeAll() {
+        for (Entry entry : statements.values()) {
+            closeQuietly(entry.statement);
+        }
+        statements.clear();
+    }
+
+    private void evictOverCapacity() {
+        var it = statements.values().iterator();
+        var evicted = new ArrayList<Entry>();
+        while (statements.size() - evicted.size() > capacity && it.hasNext()) {
+            Entry eldest = it.next();
+            if (eldest.loan == null) {
+                it.remove();
+                evicted.add(eldest);
+            }
+        }
+        evicted.forEach(entry -> closeQuietly(entry.statement));
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // The connection is going away or the statement is already unusable.
+        }
+    }
+
+    private static final class Entry {
+
+        final PreparedStatement statement;
+        Loan loan;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    private final class Loan implements InvocationHandler {
+
+        private final Entry entry;
+        private final Connection owner;
+        private boolean closed;
+
+        Loan(Entry entry, Connection owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    synchronized (StatementCache.this) {
+                        release();
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed;
+                }
+                case "getConnection" -> {
+                    return owner;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "cached " + entry.statement;
+                }
+                default -> {
+                }
+            }
+            if (closed) {
+                throw new SQLException("statement has been closed");
+            }
+            try {
+                return method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void release() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            entry.loan = null;
+            try {
+                entry.statement.clearParameters();
+                entry.statement.clearBatch();
+                entry.statement.clearWarnings();
+            } catch (SQLException e) {
+                statements.values().remove(entry);
+                closeQuietly(entry.statement);
+            }
+        }
+    }
+}
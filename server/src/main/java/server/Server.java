@@ -1,5 +1,7 @@
 package server;
 
+import chess.ChessGame;
+import chess.Tablebase;
 import com.google.gson.Gson;
 import dataaccess.*;
 import io.javalin.*;
@@ -10,6 +12,9 @@ import service.GameService;
 import service.UserService;
 import service.ErrorException;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,10 +28,11 @@ public class Server {
 
 
     public Server() {
-        var dataAccess = new SqlDataAccess();
+        useTablebase(System.getProperty("chess.tablebases"));
+        var dataAccess = new CachingDataAccess(new SqlDataAccess());
         userService = new UserService(dataAccess);
         gameService = new GameService(dataAccess);
-        websocketHandler = new WebsocketHandler();
+        websocketHandler = new WebsocketHandler(dataAccess);
         server = Javalin.create(config -> config.staticFiles.add("web"));
 
         // Register your endpoints and exception handlers here.
@@ -42,6 +48,8 @@ public class Server {
 
         server.put("game", ctx -> joinGame(ctx));
 
+        server.put("game/computer", ctx -> addComputerOpponent(ctx));
+
         server.get("game", ctx -> listGames(ctx));
 
         server.ws("/ws", ws -> {
@@ -176,6 +184,35 @@ public class Server {
         }
     }
 
+    public void addComputerOpponent(Context ctx) throws ErrorException {
+        try {
+            var serializer = new Gson();
+            String reqJson = ctx.body();
+            String authData = ctx.header("authorization");
+            JoinRequest joinReq = serializer.fromJson(reqJson, JoinRequest.class);
+
+            if (joinReq.gameID() == null) {
+                throw new BadRequestException("Error: bad request");
+            }
+
+            if ("WHITE".equals(joinReq.playerColor())|| "BLACK".equals(joinReq.playerColor())) {
+                var joinResult = gameService.addComputerOpponent(joinReq, authData);
+                ctx.status(200).result(serializer.toJson(joinResult));
+            } else {
+                throw new BadRequestException("Error: bad request");
+            }
+
+        } catch (BadRequestException ex) {
+            handleError(ctx, ex, 400);
+        } catch (GameService.GameTakenException | GameService.NotAPlayerException e) {
+            handleError(ctx, e, 403);
+        } catch (ErrorException x) {
+            handleError(ctx, x, 401);
+        } catch (DataAccessException x) {
+            handleError(ctx, x, 500);
+        }
+    }
+
     public void listGames(Context ctx) throws ErrorException {
         try {
             var serializer = new Gson();
@@ -202,6 +239,17 @@ public class Server {
         ctx.status(statusCode).result(serializer.toJson(error));
     }
 
+    private static void useTablebase(String directory) {
+        if (directory == null || !Files.isDirectory(Path.of(directory))) {
+            return;
+        }
+        try {
+            ChessGame.useTablebase(Tablebase.open(Path.of(directory)));
+        } catch (IOException e) {
+            System.out.println("Error: failed to open endgame tables: " + e.getMessage());
+        }
+    }
+
     public int run(int desiredPort) {
         server.start(desiredPort);
         return server.port();
@@ -209,5 +257,6 @@ public class Server {
 
     public void stop() {
         server.stop();
+        websocketHandler.close();
     }
 }
@@ -0,0 +1,78 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import engine.OpeningBook;
+import engine.PonderingPlayer;
+import engine.SearchPool;
+import engine.SearchResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs the computer players for every bot game on this server. All of them
+ * search on one {@link SearchPool}, which is the node's CPU budget for
+ * computer play: real searches and pondering together never use more than
+ * {@code chess.bot.threads} cores, however many bot games are active.
+ * <p>
+ * If {@code chess.bot.book} names an {@link OpeningBook} file, book moves are
+ * played without searching.
+ */
+public class BotScheduler {
+
+    private static final int THREADS = Integer.getInteger("chess.bot.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int THREADS_PER_SEARCH = Integer.getInteger("chess.bot.searchThreads", 2);
+    private static final long MOVE_TIME_MILLIS = Long.getLong("chess.bot.moveTimeMillis", 2_000L);
+    private static final long MAX_PONDER_MILLIS = Long.getLong("chess.bot.maxPonderMillis", 60_000L);
+    private static final int TABLE_MEGABYTES = 16;
+
+    private final SearchPool pool = new SearchPool(THREADS);
+    private final Map<Integer, PonderingPlayer> players = new ConcurrentHashMap<>();
+    private final OpeningBook book = openBook(System.getProperty("chess.bot.book"));
+
+    /**
+     * Starts the computer thinking about its move in a game; it keeps
+     * pondering on the opponent's time once the move is chosen.
+     */
+    public CompletableFuture<SearchResult> requestMove(int gameId, ChessGame game) {
+        if (book != null) {
+            ChessMove bookMove = book.pick(game, ThreadLocalRandom.current());
+            if (bookMove != null) {
+                return CompletableFuture.completedFuture(new SearchResult(bookMove, 0, 0, 0, 0, List.of(bookMove)));
+            }
+        }
+        PonderingPlayer player = players.computeIfAbsent(gameId, id ->
+                new PonderingPlayer(pool, TABLE_MEGABYTES, MOVE_TIME_MILLIS, MAX_PONDER_MILLIS, THREADS_PER_SEARCH));
+        return player.play(game);
+    }
+
+    /**
+     * Stops any search for a game that is over and frees its tables.
+     */
+    public void endGame(int gameId) {
+        PonderingPlayer player = players.remove(gameId);
+        if (player != null) {
+            player.close();
+        }
+    }
+
+    private static OpeningBook openBook(String path) {
+        if (path == null || !Files.exists(Path.of(path))) {
+            return null;
+        }
+        try {
+            return OpeningBook.open(Path.of(path));
+        } catch (IOException e) {
+            System.out.println("Error: failed to open opening book: " + e.getMessage());
+            return null;
+        }
+    }
+}
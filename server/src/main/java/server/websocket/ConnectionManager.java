@@ -5,6 +5,8 @@ import org.eclipse.jetty.websocket.api.Session;
 import websocket.messages.ServerMessage;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -23,15 +25,35 @@ public class ConnectionManager {
         sessions.put(session, username);
     }
 
-    public void remove(int gameId, Session session) {
+    /**
+     * @return true if that was the game's last connection
+     */
+    public boolean remove(int gameId, Session session) {
         Map<Session, String> sessions;
         if (connections.containsKey(gameId)) {
             sessions = connections.get(gameId);
             sessions.remove(session);
             if (sessions.isEmpty()) {
                 connections.remove(gameId);
+                return true;
             }
         }
+        return false;
+    }
+
+    /**
+     * Removes a closed session from every game it was connected to.
+     *
+     * @return the games that no longer have any connections
+     */
+    public List<Integer> remove(Session session) {
+        List<Integer> emptied = new ArrayList<>();
+        for (var entry : connections.entrySet()) {
+            if (entry.getValue().containsKey(session) && remove(entry.getKey(), session)) {
+                emptied.add(entry.getKey());
+            }
+        }
+        return emptied;
     }
 
     public void directSend(int gameId, Session session, ServerMessage message) throws IOException {
@@ -0,0 +1,410 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import dataaccess.DataAccess;
+import dataaccess.DataAccessException;
+import dataaccess.GameNotFoundException;
+import model.GameData;
+import model.GameMove;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind persistence for games being played over websockets. The
+ * handler keeps each active game in memory and calls {@link #recordMove}
+ * after applying a move there; the move is appended to a local log and
+ * queued, and the caller can broadcast straight away.
+ * <p>
+ * Every {@code chess.persist.flushMillis} a background thread appends the
+ * queued moves of all games to the database's move log in one batch. Once a
+ * game has advanced {@code chess.persist.snapshotPlies} past the last
+ * snapshot this persister wrote, its board is saved as a new snapshot, so
+ * loading it replays only a few moves.
+ * <p>
+ * The local log covers the time between flushes: it is split into segments,
+ * one per flush, and a segment is deleted only once the flush that closed it
+ * has been saved. A move is written to the log straight away, so it survives
+ * the server process dying; the flush forces the closed segment to disk
+ * before saving it, one sync for all the moves in it, so a crash of the
+ * whole machine loses at most the moves of the last flush interval. On startup, moves left in segments from a crash are
+ * replayed onto the stored games. Each record carries the ply it was played
+ * at, so a move the database already has is not applied twice.
+ * <p>
+ * Each server logs to its own {@code instance-N} directory under
+ * {@code chess.persist.dir}, which defaults to {@code chess-pending-moves} in
+ * the working directory. A server holds a file lock on its directory while it
+ * runs, so it never reads or overwrites another server's log; a new server
+ * takes the first directory nobody holds and recovers what is left in it.
+ */
+public class GamePersister implements AutoCloseable {
+
+    private static final long FLUSH_MILLIS = Long.getLong("chess.persist.flushMillis", 100L);
+    private static final int SNAPSHOT_PLIES = Integer.getInteger("chess.persist.snapshotPlies", 20);
+    private static final Path LOG_DIRECTORY = Path.of(System.getProperty("chess.persist.dir", "chess-pending-moves"));
+    private static final String INSTANCE_PREFIX = "instance-";
+    private static final String LOCK_FILE = "lock";
+    private static final String SEGMENT_PREFIX = "moves-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    // gameID, ply after the move, packed move.
+    private static final int RECORD_BYTES = 3 * Integer.BYTES;
+
+    /**
+     * A log directory, and the channel holding this process's lock on it if
+     * it was claimed rather than given. Closing it releases the lock.
+     */
+    record LogDirectory(Path path, FileChannel lockChannel) implements AutoCloseable {
+        @Override
+        public void close() throws IOException {
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        }
+    }
+
+    private final DataAccess dataAccess;
+    private final LogDirectory logDirectory;
+    private final Path directory;
+    private final int snapshotPlies;
+    private final ScheduledExecutorService flusher;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+
+    // Ply of the last snapshot saved for each game; only used by flush().
+    private final Map<Integer, Integer> snapshotPly = new HashMap<>();
+
+    // Guarded by this. A game stays in touched until a flush has saved its
+    // latest recorded move.
+    private final List<GameMove> pending = new ArrayList<>();
+    private final Map<Integer, GameData> touched = new LinkedHashMap<>();
+    private final List<Path> closedSegments = new ArrayList<>();
+    private long segmentNumber;
+    private Path segment;
+    private FileChannel log;
+
+    public GamePersister(DataAccess dataAccess) {
+        this(dataAccess, claim(LOG_DIRECTORY), FLUSH_MILLIS, SNAPSHOT_PLIES);
+    }
+
+    GamePersister(DataAccess dataAccess, Path directory, long flushMillis, int snapshotPlies) {
+        this(dataAccess, new LogDirectory(directory, null), flushMillis, snapshotPlies);
+    }
+
+    private GamePersister(DataAccess dataAccess, LogDirectory logDirectory, long flushMillis, int snapshotPlies) {
+        this.dataAccess = dataAccess;
+        this.logDirectory = logDirectory;
+        this.directory = logDirectory.path();
+        this.snapshotPlies = snapshotPlies;
+        try {
+            Files.createDirectories(directory);
+            recover();
+            openSegment();
+        } catch (IOException e) {
+            throw new RuntimeException("Error: can't open the move log in " + directory, e);
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "game-persister");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Logs a move that has just been made on {@code game} and queues it to be
+     * saved. Call it while holding the game's lock, so the logged plies come
+     * in order. The log is synced to disk by the next flush, not here.
+     */
+    public synchronized void recordMove(GameData game, ChessMove move) throws IOException {
+        var gameMove = new GameMove(game.gameID(), game.game().ply(), PackedMove.of(move));
+        record.clear();
+        record.putInt(gameMove.gameID()).putInt(gameMove.ply()).putInt(gameMove.move()).flip();
+        while (record.hasRemaining()) {
+            log.write(record);
+        }
+        pending.add(gameMove);
+        touched.put(game.gameID(), game);
+    }
+
+    /**
+     * @return the game as last recorded, if it has moves that have not been
+     * saved yet, otherwise null
+     */
+    public synchronized GameData pendingGame(int gameID) {
+        return touched.get(gameID);
+    }
+
+    /**
+     * Saves the queued moves now, and snapshots the games that are due for
+     * one. Called by the background thread; moves that fail to save are
+     * retried on the next flush.
+     */
+    void flush() {
+        List<GameMove> moves;
+        List<GameData> games;
+        List<Path> covered;
+        FileChannel closed = null;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            moves = new ArrayList<>(pending);
+            pending.clear();
+            games = new ArrayList<>(touched.values());
+            try {
+                closed = openSegment();
+            } catch (IOException e) {
+                System.out.println("Error: can't start a new move log segment: " + e.getMessage());
+            }
+            covered = new ArrayList<>(closedSegments);
+        }
+        // Synced outside the lock, so recordMove never waits on the disk.
+        if (closed != null) {
+            syncAndClose(closed);
+        }
+
+        try {
+            dataAccess.appendMoves(moves);
+        } catch (DataAccessException e) {
+            System.out.println("Error: failed to save moves, will retry: " + e.getMessage());
+            synchronized (this) {
+                pending.addAll(0, moves);
+            }
+            return;
+        }
+
+        synchronized (this) {
+            closedSegments.removeAll(covered);
+            for (GameData game : games) {
+                // A game recorded again since is still waiting for its next flush.
+                touched.remove(game.gameID(), game);
+            }
+        }
+        for (Path path : covered) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                System.out.println("Error: can't delete move log segment " + path + ": " + e.getMessage());
+            }
+        }
+        snapshot(games);
+    }
+
+    /**
+     * Saves a new snapshot of each game that has moved far enough past its
+     * last one. The moves are already saved, so a failure here only means
+     * loading the game replays more of them.
+     */
+    private void snapshot(List<GameData> games) {
+        List<GameData> snapshots = new ArrayList<>();
+        for (GameData game : games) {
+            ChessGame board;
+            synchronized (game.game()) {
+                if (game.game().ply() - snapshotPly.getOrDefault(game.gameID(), 0) < snapshotPlies) {
+                    continue;
+                }
+                board = new ChessGame(game.game());
+            }
+            snapshots.add(new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(),
+                    game.gameName(), board, null));
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        try {
+            dataAccess.saveGames(snapshots);
+            for (GameData snapshot : snapshots) {
+                snapshotPly.put(snapshot.gameID(), snapshot.game().ply());
+            }
+        } catch (DataAccessException e) {
+            System.out.println("Error: failed to save game snapshots: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves everything still queued and closes the log.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (this) {
+            try {
+                log.force(false);
+                log.close();
+                if (pending.isEmpty() && closedSegments.isEmpty()) {
+                    Files.deleteIfExists(segment);
+                }
+                logDirectory.close();
+            } catch (IOException e) {
+                System.out.println("Error: can't close the move log: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Locks the first instance directory under {@code parent} that no running
+     * server holds. One left behind by a server that stopped or crashed is
+     * reused, and whatever that server did not save is recovered from it.
+     */
+    static LogDirectory claim(Path parent) {
+        for (int instance = 0; ; instance++) {
+            Path path = parent.resolve(INSTANCE_PREFIX + instance);
+            try {
+                Files.createDirectories(path);
+                FileChannel channel = FileChannel.open(path.resolve(LOCK_FILE),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                if (tryLock(channel)) {
+                    return new LogDirectory(path, channel);
+                }
+                channel.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Error: can't open the move log in " + path, e);
+            }
+        }
+    }
+
+    private static boolean tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            // Held by another server in this JVM.
+            return false;
+        }
+    }
+
+    private static void syncAndClose(FileChannel segment) {
+        try (segment) {
+            segment.force(false);
+        } catch (IOException e) {
+            System.out.println("Error: can't sync the move log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts writing a new segment.
+     *
+     * @return the channel of the segment it replaces, still open so the
+     * caller can sync it, or null if there was none
+     */
+    private FileChannel openSegment() throws IOException {
+        Path next = directory.resolve(SEGMENT_PREFIX + (segmentNumber + 1) + SEGMENT_SUFFIX);
+        FileChannel channel = FileChannel.open(next, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        FileChannel previous = log;
+        if (previous != null) {
+            closedSegments.add(segment);
+        }
+        segmentNumber++;
+        segment = next;
+        log = channel;
+        return previous;
+    }
+
+    /**
+     * Saves the moves left in the log by a previous run that the database
+     * does not have yet, then deletes the old segments. If the database
+     * can't be reached the segments are kept for the next start.
+     */
+    private void recover() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(GamePersister::isSegment).forEach(segments::add);
+        }
+        segments.sort((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)));
+        for (Path path : segments) {
+            segmentNumber = Math.max(segmentNumber, segmentNumber(path));
+        }
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<Integer, GameData> games = new HashMap<>();
+            List<GameMove> replayed = new ArrayList<>();
+            for (Path path : segments) {
+                ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(path));
+                // A record cut short by a crash was never acknowledged, so it is dropped.
+                while (records.remaining() >= RECORD_BYTES) {
+                    int gameID = records.getInt();
+                    int ply = records.getInt();
+                    int move = records.getInt();
+                    if (!games.containsKey(gameID)) {
+                        games.put(gameID, loadGame(gameID));
+                    }
+                    GameData game = games.get(gameID);
+                    // Moves at or before the stored ply may still be missing from the
+                    // database's move log if a snapshot got ahead of them.
+                    if (game != null && (ply <= game.game().ply() || replay(game.game(), ply, move))) {
+                        replayed.add(new GameMove(gameID, ply, move));
+                    }
+                }
+            }
+            dataAccess.appendMoves(replayed);
+        } catch (DataAccessException e) {
+            System.out.println("Error: can't recover moves, keeping the move log: " + e.getMessage());
+            return;
+        }
+        for (Path path : segments) {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * @return the stored game, or null if it was deleted since the move was
+     * logged
+     */
+    private GameData loadGame(int gameID) throws DataAccessException {
+        try {
+            return dataAccess.getGame(gameID);
+        } catch (GameNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static boolean replay(ChessGame game, int ply, int move) {
+        if (game.ply() != ply - 1) {
+            return false;
+        }
+        try {
+            game.makeMove(PackedMove.toChessMove(move));
+            return true;
+        } catch (InvalidMoveException e) {
+            return false;
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX) && segmentNumber(path) >= 0;
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+}
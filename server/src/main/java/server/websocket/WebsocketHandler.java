@@ -3,31 +3,51 @@ package server.websocket;
 import chess.ChessMove;
 import chess.ChessPosition;
 import chess.InvalidMoveException;
+import chess.Tablebase;
 import com.google.gson.Gson;
+import dataaccess.DataAccess;
 import dataaccess.DataAccessException;
 import io.javalin.websocket.*;
 import model.GameData;
+import org.eclipse.jetty.websocket.api.Session;
 import org.jetbrains.annotations.NotNull;
+import service.GameService;
 import websocket.commands.UserGameCommand;
 import websocket.messages.*;
-import dataaccess.SqlDataAccess;
 import chess.ChessGame;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class WebsocketHandler implements WsConnectHandler, WsMessageHandler, WsCloseHandler {
 
     private final ConnectionManager connections = new ConnectionManager();
-    private final SqlDataAccess dataAccess = new SqlDataAccess();
-    private final Map<Integer, GameState> gameStates = new HashMap<>();
+    private final DataAccess dataAccess;
+    private final GamePersister persister;
+    private final Map<Integer, GameData> activeGames = new ConcurrentHashMap<>();
+    private final Map<Integer, GameState> gameStates = new ConcurrentHashMap<>();
+    private final BotScheduler bots = new BotScheduler();
+
+    public WebsocketHandler(DataAccess dataAccess) {
+        this.dataAccess = dataAccess;
+        this.persister = new GamePersister(dataAccess);
+    }
 
+    /**
+     * Saves any moves that have not been written to the database yet.
+     */
+    public void close() {
+        persister.close();
+    }
 
     @Override
     public void handleClose(@NotNull WsCloseContext ctx) throws Exception {
         System.out.print("Websocket closed\n");
+        for (int gameId : connections.remove(ctx.session)) {
+            release(gameId);
+        }
     }
 
     @Override
@@ -63,7 +83,7 @@ public class WebsocketHandler implements WsConnectHandler, WsMessageHandler, WsC
             }
             var username = authData.username();
             var gameId = command.getGameID();
-            var game = dataAccess.getGame(gameId);
+            var game = activeGame(gameId, true);
 
             if (username.equals(game.whiteUsername())) {
                 role = "white";
@@ -75,12 +95,20 @@ public class WebsocketHandler implements WsConnectHandler, WsMessageHandler, WsC
             connections.add(gameId, session, username);
             gameStates.putIfAbsent(gameId, GameState.ACTIVE);
 
-            var loadGame = new LoadGameMessage(game.game());
-            connections.directSend(gameId, session, loadGame);
+            synchronized (game.game()) {
+                var loadGame = new LoadGameMessage(game.game());
+                connections.directSend(gameId, session, loadGame);
+            }
 
             var message = String.format("%s joined the game as %s!", username, role);
             var notification = new NotificationMessage(message);
             connections.broadcast(session, notification, gameId);
+
+            synchronized (game.game()) {
+                if (isComputerTurn(game)) {
+                    playComputerMove(gameId, game.game());
+                }
+            }
         } catch (DataAccessException e) {
             var error = new ErrorMessage(e.getMessage());
             connections.directSend(command.getGameID(), ctx.session, error);
@@ -89,7 +117,7 @@ public class WebsocketHandler implements WsConnectHandler, WsMessageHandler, WsC
 
     private void makeMove(WsMessageContext ctx, UserGameCommand command) throws DataAccessException, IOException {
         var session = ctx.session;
-        var game = dataAccess.getGame(command.getGameID());
+        var game = activeGame(command.getGameID(), false);
         ChessGame chessGame = game.game();
         var authData = dataAccess.getAuth(command.getAuthToken());
         if (authData == null) {
@@ -120,41 +148,126 @@ public class WebsocketHandler implements WsConnectHandler, WsMessageHandler, WsC
             opponentUsername = game.blackUsername();
         }
 
-        GameState gameState = gameStates.get(game.gameID());
-        if (!gameState.equals(GameState.ACTIVE)) {
-            var errorMessage = new ErrorMessage("Game is over. No moves can be made.");
-            connections.directSend(command.getGameID(), session, errorMessage);
-            return;
+        // Moves on one game are applied one at a time, in the order they are logged and broadcast.
+        synchronized (chessGame) {
+            GameState gameState = gameStates.get(game.gameID());
+            if (!gameState.equals(GameState.ACTIVE)) {
+                var errorMessage = new ErrorMessage("Game is over. No moves can be made.");
+                connections.directSend(command.getGameID(), session, errorMessage);
+                return;
+            }
+
+            if (playerColor.equals(chessGame.getTeamTurn())) {
+                try {
+                    chessGame.makeMove(move);
+                } catch (InvalidMoveException e) {
+                    var errorMessage = new ErrorMessage("Invalid move.");
+                    connections.directSend(command.getGameID(), session, errorMessage);
+                    return;
+                }
+            } else {
+                var errorMessage = new ErrorMessage("It is not your turn.");
+                connections.directSend(command.getGameID(), session, errorMessage);
+                return;
+            }
+
+            game = finishMove(game, chessGame, username, opponentUsername, session, move);
+
+            if (isComputerTurn(game)) {
+                playComputerMove(game.gameID(), chessGame);
+            }
         }
+    }
 
-        if (playerColor.equals(chessGame.getTeamTurn())) {
+    /**
+     * Starts the computer searching in a bot game and plays its move when the
+     * search finishes, without holding up the websocket thread.
+     */
+    private void playComputerMove(int gameId, ChessGame chessGame) {
+        try {
+            bots.requestMove(gameId, chessGame).thenAccept(result -> {
+                try {
+                    applyComputerMove(gameId, result.move());
+                } catch (DataAccessException | IOException e) {
+                    System.out.println("Error: computer move failed: " + e.getMessage());
+                }
+            });
+        } catch (IllegalStateException e) {
+            System.out.println("Error: computer player unavailable: " + e.getMessage());
+        }
+    }
+
+    private void applyComputerMove(int gameId, ChessMove move) throws DataAccessException, IOException {
+        if (move == null || !GameState.ACTIVE.equals(gameStates.get(gameId))) {
+            return;
+        }
+        var game = activeGame(gameId, false);
+        ChessGame chessGame = game.game();
+        synchronized (chessGame) {
+            if (!isComputerTurn(game)) {
+                return;
+            }
+            String opponentUsername = (chessGame.getTeamTurn() == ChessGame.TeamColor.WHITE)
+                    ? game.blackUsername()
+                    : game.whiteUsername();
             try {
                 chessGame.makeMove(move);
             } catch (InvalidMoveException e) {
-                var errorMessage = new ErrorMessage("Invalid move.");
-                connections.directSend(command.getGameID(), session, errorMessage);
+                // The game changed while the computer was thinking.
                 return;
             }
-        } else {
-            var errorMessage = new ErrorMessage("It is not your turn.");
-            connections.directSend(command.getGameID(), session, errorMessage);
-            return;
+            finishMove(game, chessGame, GameService.COMPUTER_USERNAME, opponentUsername, null, move);
         }
+    }
 
-        if (chessGame.isInCheckmate(opponent)) {
-            var message = String.format("%s is in checkmate!", opponentUsername);
-            gameStates.put(game.gameID(), GameState.CHECKMATE);
-            var notification = new NotificationMessage(message);
-            connections.broadcast(null, notification, game.gameID());
-        } else if (chessGame.isInStalemate(opponent)) {
-            var message = String.format("%s is in stalemate!", opponentUsername);
-            gameStates.put(game.gameID(), GameState.STALEMATE);
-            var notification = new NotificationMessage(message);
-            connections.broadcast(null, notification, game.gameID());
-        } else if (chessGame.isInCheck(opponent)) {
-            var message = String.format("%s is in check!", opponentUsername);
-            var notification = new NotificationMessage(message);
-            connections.broadcast(null, notification, game.gameID());
+    private boolean isComputerTurn(GameData game) {
+        if (!GameState.ACTIVE.equals(gameStates.get(game.gameID()))) {
+            return false;
+        }
+        String mover = (game.game().getTeamTurn() == ChessGame.TeamColor.WHITE)
+                ? game.whiteUsername()
+                : game.blackUsername();
+        return GameService.COMPUTER_USERNAME.equals(mover);
+    }
+
+    private GameData finishMove(GameData game, ChessGame chessGame, String username, String opponentUsername,
+                                Session session, ChessMove move) throws DataAccessException, IOException {
+        switch (chessGame.status()) {
+            case CHECKMATE -> {
+                var message = String.format("%s is in checkmate!", opponentUsername);
+                gameStates.put(game.gameID(), GameState.CHECKMATE);
+                bots.endGame(game.gameID());
+                var notification = new NotificationMessage(message);
+                connections.broadcast(null, notification, game.gameID());
+            }
+            case STALEMATE -> {
+                var message = String.format("%s is in stalemate!", opponentUsername);
+                gameStates.put(game.gameID(), GameState.STALEMATE);
+                bots.endGame(game.gameID());
+                var notification = new NotificationMessage(message);
+                connections.broadcast(null, notification, game.gameID());
+            }
+            case CHECK -> {
+                var message = String.format("%s is in check!", opponentUsername);
+                var notification = new NotificationMessage(message);
+                connections.broadcast(null, notification, game.gameID());
+            }
+            case ACTIVE -> {
+            }
+        }
+
+        if (GameState.ACTIVE.equals(gameStates.get(game.gameID()))) {
+            var endgame = chessGame.endgameResult();
+            if (chessGame.isThreefoldRepetition()) {
+                endInDraw(game.gameID(), GameState.REPETITION,
+                        "The game is drawn: the same position has occurred three times.");
+            } else if (chessGame.isFiftyMoveDraw()) {
+                endInDraw(game.gameID(), GameState.FIFTY_MOVES,
+                        "The game is drawn: fifty moves without a capture or pawn move.");
+            } else if (endgame != null && endgame.outcome() == Tablebase.Outcome.DRAW) {
+                endInDraw(game.gameID(), GameState.DRAWN,
+                        "The game is drawn: neither side can force a win from here.");
+            }
         }
 
         game = new GameData(game.gameID(),
@@ -164,7 +277,13 @@ public class WebsocketHandler implements WsConnectHandler, WsMessageHandler, WsC
                 chessGame,
                 game.playerColor());
 
-        dataAccess.updateGame(game);
+        // A game released while this move was being made stays out of memory;
+        // the persister still has it.
+        activeGames.replace(game.gameID(), game);
+        persister.recordMove(game, move);
+        if (!GameState.ACTIVE.equals(gameStates.get(game.gameID()))) {
+            activeGames.remove(game.gameID());
+        }
 
         var loadGameMessage = new LoadGameMessage(game.game());
         connections.broadcast(null, loadGameMessage, game.gameID());
@@ -174,14 +293,70 @@ public class WebsocketHandler implements WsConnectHandler, WsMessageHandler, WsC
         var message = String.format("%s made move: %s", username, move);
         var notification = new NotificationMessage(message);
         connections.broadcast(session, notification, game.gameID());
+        return game;
+    }
 
+    /**
+     * Returns the in-memory copy of a game, loading it from the database the
+     * first time. While a game is being played its board in memory is the
+     * authoritative one and is saved by the {@link GamePersister}; players
+     * join through the REST API, so {@code refreshPlayers} picks up the ones
+     * stored in the database.
+     * <p>
+     * A game is dropped from memory once it is over or nobody is connected to
+     * it. If it is opened again before the persister has saved its last
+     * moves, the board is taken from the persister rather than the database.
+     */
+    private GameData activeGame(int gameId, boolean refreshPlayers) throws DataAccessException {
+        GameData active = activeGames.get(gameId);
+        if (active != null && !refreshPlayers) {
+            return active;
+        }
+        GameData stored = dataAccess.getGame(gameId);
+        if (active == null) {
+            GameData pending = persister.pendingGame(gameId);
+            GameData loaded = (pending == null) ? stored : new GameData(gameId,
+                    stored.whiteUsername(),
+                    stored.blackUsername(),
+                    stored.gameName(),
+                    pending.game(),
+                    stored.playerColor());
+            active = activeGames.putIfAbsent(gameId, loaded);
+            if (active == null) {
+                return loaded;
+            }
+        }
+        GameData refreshed = new GameData(gameId,
+                stored.whiteUsername(),
+                stored.blackUsername(),
+                stored.gameName(),
+                active.game(),
+                active.playerColor());
+        activeGames.put(gameId, refreshed);
+        return refreshed;
+    }
+
+    /**
+     * Forgets a game nobody is connected to any more. A finished game keeps
+     * its state, so it can't be played on when someone reconnects.
+     */
+    private void release(int gameId) {
+        activeGames.remove(gameId);
+        gameStates.remove(gameId, GameState.ACTIVE);
+        bots.endGame(gameId);
+    }
+
+    private void endInDraw(int gameId, GameState state, String message) throws IOException {
+        gameStates.put(gameId, state);
+        bots.endGame(gameId);
+        connections.broadcast(null, new NotificationMessage(message), gameId);
     }
 
     private void resign(WsMessageContext ctx, UserGameCommand command) throws DataAccessException, IOException {
         var session = ctx.session;
         var authData = dataAccess.getAuth(command.getAuthToken());
         var username = authData.username();
-        var game = dataAccess.getGame(command.getGameID());
+        var game = activeGame(command.getGameID(), false);
 
         GameState gameState = gameStates.get(game.gameID());
         if (gameState.equals(GameState.RESIGNED)) {
@@ -192,14 +367,14 @@ public class WebsocketHandler implements WsConnectHandler, WsMessageHandler, WsC
 
         if (username.equals(game.whiteUsername()) || username.equals(game.blackUsername())) {
             gameStates.put(game.gameID(), GameState.RESIGNED);
+            bots.endGame(game.gameID());
+            activeGames.remove(game.gameID());
         } else {
             var errorMessage = new ErrorMessage("Sorry, you can't resign.");
             connections.directSend(command.getGameID(), session, errorMessage);
             return;
         }
 
-        dataAccess.updateGame(game);
-
         var message = String.format("%s has resigned. Game is over!", username);
         var notification = new NotificationMessage(message);
         connections.broadcast(null, notification, command.getGameID());
@@ -209,7 +384,7 @@ public class WebsocketHandler implements WsConnectHandler, WsMessageHandler, WsC
         var session = ctx.session;
         var authData = dataAccess.getAuth(command.getAuthToken());
         var username = authData.username();
-        var game = dataAccess.getGame(command.getGameID());
+        var game = activeGame(command.getGameID(), true);
 
         if (username.equals(game.whiteUsername())) {
             game = new GameData(game.gameID(),
@@ -227,8 +402,16 @@ public class WebsocketHandler implements WsConnectHandler, WsMessageHandler, WsC
                     game.playerColor());
         }
 
-        dataAccess.updateGame(game);
-        connections.remove(game.gameID(), session);
+        synchronized (game.game()) {
+            activeGames.put(game.gameID(), game);
+            dataAccess.updateGame(game);
+        }
+        if (game.whiteUsername() == null || game.blackUsername() == null) {
+            bots.endGame(game.gameID());
+        }
+        if (connections.remove(game.gameID(), session)) {
+            release(game.gameID());
+        }
         var message = String.format("%s has left the game.", username);
         var notification = new NotificationMessage(message);
         connections.broadcast(session, notification, game.gameID());
@@ -238,6 +421,9 @@ public class WebsocketHandler implements WsConnectHandler, WsMessageHandler, WsC
         ACTIVE,
         CHECKMATE,
         STALEMATE,
+        DRAWN,
+        REPETITION,
+        FIFTY_MOVES,
         RESIGNED
     }
 }
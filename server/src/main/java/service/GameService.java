@@ -10,6 +10,11 @@ import model.JoinRequest;
 import java.util.List;
 
 public class GameService {
+    /**
+     * The reserved username that seats the server's computer player in a game.
+     */
+    public static final String COMPUTER_USERNAME = "computer";
+
     private final DataAccess dataAccess;
 
     public GameService(DataAccess dataAccess) {
@@ -49,35 +54,55 @@ public class GameService {
             }
 
             GameData requestedGame = dataAccess.getGame(joinRequest.gameID());
+            String color = "WHITE".equals(joinRequest.playerColor()) ? "WHITE" : "BLACK";
+            return takeSeat(requestedGame, color, storedAuth.username(), color);
+        } catch (DataAccessException e) {
+            throw new DataAccessException("{\"message\": \"Error: failed to connect to database.\"}");
+        }
+    }
+
+    public GameData addComputerOpponent(JoinRequest joinRequest, String authToken) throws ErrorException, DataAccessException {
+        try {
+            AuthData storedAuth = dataAccess.getAuth(authToken);
+
+            if (storedAuth == null) {
+                throw new ErrorException("Error: unauthorized");
+            }
 
-            if ("WHITE".equals(joinRequest.playerColor())) {
-                if (requestedGame.whiteUsername() != null) {
-                    throw new GameTakenException("Error: Game already taken");
-                }
-                GameData updatedGame = new GameData(requestedGame.gameID(),
-                        storedAuth.username(),
-                        requestedGame.blackUsername(),
-                        requestedGame.gameName(),
-                        requestedGame.game(),
-                        "WHITE");
-                return dataAccess.updateGame(updatedGame);
-            } else {
-                if (requestedGame.blackUsername() != null) {
-                    throw new GameTakenException("Error: Game already taken");
-                }
-                GameData updatedGame = new GameData(requestedGame.gameID(),
-                        requestedGame.whiteUsername(),
-                        storedAuth.username(),
-                        requestedGame.gameName(),
-                        requestedGame.game(),
-                        "BLACK");
-                return dataAccess.updateGame(updatedGame);
+            GameData requestedGame = dataAccess.getGame(joinRequest.gameID());
+            String color = "WHITE".equals(joinRequest.playerColor()) ? "WHITE" : "BLACK";
+            String opponent = "WHITE".equals(color) ? requestedGame.blackUsername() : requestedGame.whiteUsername();
+            if (!storedAuth.username().equals(opponent)) {
+                throw new NotAPlayerException("Error: only the player in the other seat can add a computer opponent");
             }
+            return takeSeat(requestedGame, color, COMPUTER_USERNAME, requestedGame.playerColor());
         } catch (DataAccessException e) {
             throw new DataAccessException("{\"message\": \"Error: failed to connect to database.\"}");
         }
     }
 
+    /**
+     * Puts a user in the given seat of a game and saves it.
+     *
+     * @param color       the seat to fill, "WHITE" or "BLACK"
+     * @param playerColor the playerColor to store with the updated game
+     * @throws GameTakenException if someone already has that seat
+     */
+    private GameData takeSeat(GameData requestedGame, String color, String username, String playerColor)
+            throws GameTakenException, DataAccessException {
+        boolean white = "WHITE".equals(color);
+        if ((white ? requestedGame.whiteUsername() : requestedGame.blackUsername()) != null) {
+            throw new GameTakenException("Error: Game already taken");
+        }
+        GameData updatedGame = new GameData(requestedGame.gameID(),
+                white ? username : requestedGame.whiteUsername(),
+                white ? requestedGame.blackUsername() : username,
+                requestedGame.gameName(),
+                requestedGame.game(),
+                playerColor);
+        return dataAccess.updateGame(updatedGame);
+    }
+
     public List<GameData> listGames(String authToken) throws ErrorException, DataAccessException {
         try {
             AuthData storedAuth = dataAccess.getAuth(authToken);
@@ -97,4 +122,10 @@ public class GameService {
             super(message);
         }
     }
+
+    public static class NotAPlayerException extends ErrorException {
+        public NotAPlayerException(String message) {
+            super(message);
+        }
+    }
 }
@@ -25,7 +25,7 @@ public class UserService {
 
     public AuthData register(UserData user) throws ErrorException, DataAccessException {
         try {
-            if (dataAccess.getUser(user.username()) != null) {
+            if (dataAccess.getUser(user.username()) != null || GameService.COMPUTER_USERNAME.equals(user.username())) {
                 throw new ErrorException("Error: Already Taken");
             }
 
@@ -0,0 +1,143 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.PackedMove;
+import model.GameData;
+import model.GameMove;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingDataAccessTest {
+
+    private static final ChessMove KINGS_PAWN = new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null);
+
+    private MemoryDataAccess store;
+
+    @BeforeEach
+    void setUp() {
+        store = new MemoryDataAccess();
+    }
+
+    @Test
+    void secondReadIsAHit() throws DataAccessException {
+        var db = new CachingDataAccess(store, 10, 60_000);
+        int gameID = db.createGame("game1");
+
+        GameData first = db.getGame(gameID);
+        GameData second = db.getGame(gameID);
+
+        assertEquals(first, second);
+        assertNotSame(first.game(), second.game());
+        assertEquals(new CachingDataAccess.Stats(1, 1, 1, 0), db.stats());
+    }
+
+    @Test
+    void callersCannotChangeTheCachedBoard() throws Exception {
+        var db = new CachingDataAccess(store, 10, 60_000);
+        int gameID = db.createGame("game1");
+
+        db.getGame(gameID).game().makeMove(KINGS_PAWN);
+
+        assertEquals(new ChessGame(), db.getGame(gameID).game());
+    }
+
+    @Test
+    void updateWritesThrough() throws DataAccessException {
+        var db = new CachingDataAccess(store, 10, 60_000);
+        int gameID = db.createGame("game1");
+        db.getGame(gameID);
+
+        db.updateGame(new GameData(gameID, "white", null, "game1", new ChessGame(), null));
+
+        assertEquals("white", db.getGame(gameID).whiteUsername());
+        assertEquals("white", store.getGame(gameID).whiteUsername());
+        assertEquals(1, db.stats().misses());
+    }
+
+    @Test
+    void updateKeepsMovesPlayedPastItsBoard() throws Exception {
+        var db = new CachingDataAccess(store, 10, 60_000);
+        int gameID = db.createGame("game1");
+        GameData before = db.getGame(gameID);
+        db.appendMoves(List.of(new GameMove(gameID, 1, PackedMove.of(KINGS_PAWN))));
+
+        db.updateGame(new GameData(gameID, "white", null, "game1", before.game(), null));
+
+        assertEquals(1, db.getGame(gameID).game().ply());
+        assertEquals(store.getGame(gameID).game(), db.getGame(gameID).game());
+    }
+
+    @Test
+    void appendedMovesArePlayedOnTheCachedBoard() throws Exception {
+        var db = new CachingDataAccess(store, 10, 60_000);
+        int gameID = db.createGame("game1");
+        db.getGame(gameID);
+
+        db.appendMoves(List.of(new GameMove(gameID, 1, PackedMove.of(KINGS_PAWN))));
+
+        var expected = new ChessGame();
+        expected.makeMove(KINGS_PAWN);
+        assertEquals(expected, db.getGame(gameID).game());
+        assertEquals(1, db.stats().hits());
+    }
+
+    @Test
+    void movesAppendedWhileLoadingAreNotLost() throws Exception {
+        var slowStore = new MemoryDataAccess() {
+            CachingDataAccess cache;
+
+            @Override
+            public GameData getGame(int gameID) throws DataAccessException {
+                GameData game = super.getGame(gameID);
+                if (game.game().ply() == 0) {
+                    cache.appendMoves(List.of(new GameMove(gameID, 1, PackedMove.of(KINGS_PAWN))));
+                }
+                return game;
+            }
+        };
+        var db = new CachingDataAccess(slowStore, 10, 60_000);
+        slowStore.cache = db;
+        int gameID = db.createGame("game1");
+
+        assertEquals(0, db.getGame(gameID).game().ply());
+
+        assertEquals(1, db.getGame(gameID).game().ply());
+        assertEquals(2, db.stats().misses());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws DataAccessException {
+        var db = new CachingDataAccess(store, 2, 60_000);
+        int first = db.createGame("game1");
+        int second = db.createGame("game2");
+        int third = db.createGame("game3");
+
+        db.getGame(first);
+        db.getGame(second);
+        db.getGame(first);
+        db.getGame(third);
+        db.getGame(first);
+        db.getGame(second);
+
+        assertEquals(new CachingDataAccess.Stats(2, 2, 4, 2), db.stats());
+    }
+
+    @Test
+    void expiredEntriesAreReadAgain() throws DataAccessException {
+        var db = new CachingDataAccess(store, 10, 0);
+        int gameID = db.createGame("game1");
+
+        db.getGame(gameID);
+        db.getGame(gameID);
+
+        assertEquals(0, db.stats().hits());
+        assertEquals(2, db.stats().misses());
+        assertEquals(1, db.stats().evictions());
+    }
+}
@@ -0,0 +1,220 @@
+package dataaccess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1";
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private ConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void reusesReturnedConnections() throws SQLException {
+        pool = newPool(2, 60_000);
+
+        try (Connection conn = pool.borrow()) {
+            conn.createStatement().execute("SELECT 1");
+        }
+        try (Connection conn = pool.borrow()) {
+            conn.createStatement().execute("SELECT 1");
+        }
+
+        assertEquals(1, opened.get());
+        var stats = pool.stats();
+        assertEquals(2, stats.borrows());
+        assertEquals(1, stats.open());
+        assertEquals(1, stats.idle());
+    }
+
+    @Test
+    void closedLoanCannotBeUsed() throws SQLException {
+        pool = newPool(2, 60_000);
+
+        Connection conn = pool.borrow();
+        conn.close();
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+        assertEquals(1, pool.stats().idle());
+    }
+
+    @Test
+    void timesOutWhenExhausted() throws SQLException {
+        pool = newPool(1, 60_000);
+
+        try (Connection ignored = pool.borrow()) {
+            assertThrows(SQLException.class, () -> pool.borrow());
+        }
+
+        assertEquals(1, pool.stats().timeouts());
+        try (Connection conn = pool.borrow()) {
+            assertFalse(conn.isClosed());
+        }
+    }
+
+    @Test
+    void replacesConnectionsThatFailValidation() throws SQLException {
+        pool = newPool(1, 60_000);
+
+        try (Connection conn = pool.borrow()) {
+            conn.unwrap(Connection.class).close();
+        }
+        try (Connection conn = pool.borrow()) {
+            conn.createStatement().execute("SELECT 1");
+        }
+
+        assertEquals(2, opened.get());
+        assertEquals(1, pool.stats().retired());
+    }
+
+    @Test
+    void retiresConnectionsPastTheirLifetime() throws SQLException {
+        pool = newPool(1, 0);
+
+        try (Connection ignored = pool.borrow()) {
+            assertEquals(1, opened.get());
+        }
+        try (Connection ignored = pool.borrow()) {
+            assertEquals(2, opened.get());
+        }
+    }
+
+    @Test
+    void rollsBackAbandonedTransactions() throws SQLException {
+        pool = newPool(1, 60_000);
+        try (Connection conn = pool.borrow()) {
+            conn.createStatement().execute("CREATE TABLE IF NOT EXISTS pooled (id INT)");
+            conn.createStatement().execute("DELETE FROM pooled");
+        }
+
+        try (Connection conn = pool.borrow()) {
+            conn.setAutoCommit(false);
+            conn.createStatement().execute("INSERT INTO pooled VALUES (1)");
+        }
+
+        try (Connection conn = pool.borrow();
+             var rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM pooled")) {
+            assertTrue(conn.getAutoCommit());
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void reusesPreparedStatementsAcrossLoans() throws SQLException {
+        pool = newPool(1, 60_000);
+
+        PreparedStatement first;
+        try (Connection conn = pool.borrow();
+             PreparedStatement statement = conn.prepareStatement("SELECT ?")) {
+            first = statement.unwrap(PreparedStatement.class);
+            statement.setInt(1, 7);
+            statement.executeQuery().close();
+        }
+        try (Connection conn = pool.borrow();
+             PreparedStatement statement = conn.prepareStatement("SELECT ?")) {
+            assertSame(first, statement.unwrap(PreparedStatement.class));
+            assertSame(conn, statement.getConnection());
+        }
+
+        var stats = pool.stats();
+        assertEquals(1, stats.statementMisses());
+        assertEquals(1, stats.statementHits());
+    }
+
+    @Test
+    void abandonedBatchIsNotRunByTheNextLoan() throws SQLException {
+        pool = newPool(1, 60_000);
+        try (Connection conn = pool.borrow()) {
+            conn.createStatement().execute("CREATE TABLE IF NOT EXISTS batched (id INT)");
+            conn.createStatement().execute("DELETE FROM batched");
+        }
+
+        try (Connection conn = pool.borrow();
+             PreparedStatement statement = conn.prepareStatement("INSERT INTO batched VALUES (?)")) {
+            statement.setInt(1, 1);
+            statement.addBatch();
+        }
+        try (Connection conn = pool.borrow();
+             PreparedStatement statement = conn.prepareStatement("INSERT INTO batched VALUES (?)")) {
+            statement.setInt(1, 2);
+            statement.addBatch();
+            assertArrayEquals(new int[] {1}, statement.executeBatch());
+        }
+
+        try (Connection conn = pool.borrow();
+             var rs = conn.createStatement().executeQuery("SELECT id FROM batched")) {
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+            assertFalse(rs.next());
+        }
+        assertEquals(1, pool.stats().statementHits());
+    }
+
+    @Test
+    void sameSqlOpenTwiceGetsAnUncachedStatement() throws SQLException {
+        pool = newPool(1, 60_000);
+
+        try (Connection conn = pool.borrow();
+             PreparedStatement outer = conn.prepareStatement("SELECT 1");
+             PreparedStatement inner = conn.prepareStatement("SELECT 1")) {
+            assertNotSame(outer.unwrap(PreparedStatement.class), inner.unwrap(PreparedStatement.class));
+        }
+
+        assertEquals(1, pool.stats().statementMisses());
+    }
+
+    @Test
+    void closedStatementCannotBeUsed() throws SQLException {
+        pool = newPool(1, 60_000);
+
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement statement = conn.prepareStatement("SELECT 1");
+            statement.close();
+
+            assertTrue(statement.isClosed());
+            assertThrows(SQLException.class, statement::executeQuery);
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedStatements() throws SQLException {
+        pool = newPool(1, 60_000);
+
+        PreparedStatement evicted;
+        try (Connection conn = pool.borrow()) {
+            try (PreparedStatement statement = conn.prepareStatement("SELECT 1")) {
+                evicted = statement.unwrap(PreparedStatement.class);
+            }
+            conn.prepareStatement("SELECT 2").close();
+            conn.prepareStatement("SELECT 3").close();
+        }
+
+        assertTrue(evicted.isClosed());
+        assertEquals(3, pool.stats().statementMisses());
+    }
+
+    private ConnectionPool newPool(int maxSize, long maxLifetimeMillis) {
+        var settings = new ConnectionPool.Settings(maxSize, 50, 60_000, maxLifetimeMillis, 1, 2);
+        return new ConnectionPool(() -> {
+            opened.incrementAndGet();
+            return DriverManager.getConnection(URL, "sa", "");
+        }, settings);
+    }
+}
@@ -1,12 +1,18 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.PackedMove;
 import model.AuthData;
 import model.GameData;
+import model.GameMove;
 import model.UserData;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -212,7 +218,72 @@ class DataAccessTest {
         DataAccess db = new SqlDataAccess();
         var gameToUpdate = new GameData(3, "myUsername", null, "game1", new ChessGame(), null);
         
-        assertThrows(DataAccessException.class, () -> db.updateGame(gameToUpdate));
+        assertThrows(GameNotFoundException.class, () -> db.updateGame(gameToUpdate));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateGameFailureInMemory() throws DataAccessException {
+        DataAccess db = new MemoryDataAccess();
+        var gameToUpdate = new GameData(3, "myUsername", null, "game1", new ChessGame(), null);
+
+        assertThrows(GameNotFoundException.class, () -> db.updateGame(gameToUpdate));
+    }
+
+    @Test
+    void appendMovesReplaysOntoTheSnapshot() throws Exception {
+        DataAccess db = new SqlDataAccess();
+        var gameID = db.createGame("game1");
+        var expected = new ChessGame();
+        var moves = playOpening(gameID, expected);
+
+        db.appendMoves(moves);
+
+        assertEquals(expected, db.getGame(gameID).game());
+        assertEquals(expected, db.getGames().get(0).game());
+        assertEquals(moves, db.getMoves(gameID));
+    }
+
+    @Test
+    void appendMovesIgnoresLoggedPlies() throws Exception {
+        DataAccess db = new SqlDataAccess();
+        var gameID = db.createGame("game1");
+        var expected = new ChessGame();
+        var moves = playOpening(gameID, expected);
+
+        db.appendMoves(moves.subList(0, 2));
+        db.appendMoves(moves);
+
+        assertEquals(expected, db.getGame(gameID).game());
+        assertEquals(moves.size(), db.getMoves(gameID).size());
+    }
+
+    @Test
+    void snapshotReplacesReplayedMoves() throws Exception {
+        DataAccess db = new SqlDataAccess();
+        var gameID = db.createGame("game1");
+        var expected = new ChessGame();
+        var moves = playOpening(gameID, expected);
+        db.appendMoves(moves.subList(0, 2));
+
+        var snapshot = db.getGame(gameID);
+        db.saveGames(List.of(snapshot));
+        db.appendMoves(moves);
+
+        assertEquals(expected, db.getGame(gameID).game());
+        assertEquals(moves, db.getMoves(gameID));
+    }
+
+    private static List<GameMove> playOpening(int gameID, ChessGame game) throws InvalidMoveException {
+        var opening = List.of(
+                new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null),
+                new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null),
+                new ChessMove(ChessPosition.of(1, 7), ChessPosition.of(3, 6), null));
+        var moves = new ArrayList<GameMove>();
+        for (ChessMove move : opening) {
+            game.makeMove(move);
+            moves.add(new GameMove(gameID, game.ply(), PackedMove.of(move)));
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,96 @@
+package server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTest {
+
+    private static final Gson GSON = new Gson();
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static Server server;
+    private static String baseUrl;
+    private String authToken;
+    private int gameID;
+
+    @BeforeAll
+    static void startServer() {
+        server = new Server();
+        baseUrl = "http://localhost:" + server.run(0) + "/";
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        send("DELETE", "db", null, null);
+        var auth = send("POST", "user", null, Map.of("username", "joe", "password", "pw", "email", "j@j.com"));
+        authToken = json(auth).get("authToken").getAsString();
+        var game = send("POST", "game", authToken, Map.of("gameName", "game"));
+        gameID = json(game).get("gameID").getAsInt();
+    }
+
+    @Test
+    void addComputerOpponent() throws Exception {
+        send("PUT", "game", authToken, Map.of("playerColor", "WHITE", "gameID", gameID));
+
+        var response = send("PUT", "game/computer", authToken, Map.of("playerColor", "BLACK", "gameID", gameID));
+
+        assertEquals(200, response.statusCode());
+        var games = json(send("GET", "game", authToken, null)).getAsJsonArray("games");
+        assertEquals("computer", games.get(0).getAsJsonObject().get("blackUsername").getAsString());
+    }
+
+    @Test
+    void addComputerOpponentRejected() throws Exception {
+        assertEquals(403, send("PUT", "game/computer", authToken,
+                Map.of("playerColor", "BLACK", "gameID", gameID)).statusCode());
+
+        send("PUT", "game", authToken, Map.of("playerColor", "WHITE", "gameID", gameID));
+        send("PUT", "game/computer", authToken, Map.of("playerColor", "BLACK", "gameID", gameID));
+        assertEquals(403, send("PUT", "game/computer", authToken,
+                Map.of("playerColor", "BLACK", "gameID", gameID)).statusCode());
+        assertEquals(400, send("PUT", "game/computer", authToken,
+                Map.of("playerColor", "GREEN", "gameID", gameID)).statusCode());
+        assertEquals(401, send("PUT", "game/computer", "bad token",
+                Map.of("playerColor", "BLACK", "gameID", gameID)).statusCode());
+    }
+
+    @Test
+    void registerComputerUsername() throws Exception {
+        var response = send("POST", "user", null,
+                Map.of("username", "computer", "password", "pw", "email", "c@c.com"));
+
+        assertEquals(403, response.statusCode());
+    }
+
+    private static HttpResponse<String> send(String method, String path, String authToken, Object body)
+            throws Exception {
+        var request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(GSON.toJson(body)));
+        if (authToken != null) {
+            request.header("authorization", authToken);
+        }
+        return CLIENT.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JsonObject json(HttpResponse<String> response) {
+        return GSON.fromJson(response.body(), JsonObject.class);
+    }
+}
@@ -0,0 +1,162 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import dataaccess.DataAccessException;
+import dataaccess.MemoryDataAccess;
+import model.GameData;
+import model.GameMove;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GamePersisterTest {
+
+    private static final long NEVER = 3_600_000L;
+
+    @TempDir
+    Path directory;
+
+    private MemoryDataAccess store;
+    private GameData game;
+
+    @BeforeEach
+    void setUp() throws DataAccessException {
+        store = new MemoryDataAccess();
+        int gameID = store.createGame("persisted");
+        GameData stored = store.getGame(gameID);
+        game = new GameData(gameID, "white", "black", stored.gameName(), new ChessGame(stored.game()), null);
+    }
+
+    @Test
+    void flushSavesTheLatestBoard() throws Exception {
+        var persister = new GamePersister(store, directory, NEVER, 20);
+        play(persister, move(2, 5, 4, 5));
+        play(persister, move(7, 5, 5, 5));
+        assertEquals(new ChessGame(), store.getGame(game.gameID()).game());
+
+        persister.flush();
+
+        assertEquals(game.game(), store.getGame(game.gameID()).game());
+        assertEquals(2, store.getMoves(game.gameID()).size());
+        assertEquals(0, segmentBytes());
+        persister.close();
+    }
+
+    @Test
+    void replaysLoggedMovesAfterACrash() throws Exception {
+        var crashed = new GamePersister(store, directory, NEVER, 20);
+        play(crashed, move(2, 5, 4, 5));
+        play(crashed, move(7, 5, 5, 5));
+        play(crashed, move(1, 7, 3, 6));
+
+        var recovered = new GamePersister(store, directory, NEVER, 20);
+
+        assertEquals(game.game(), store.getGame(game.gameID()).game());
+        assertEquals(3, store.getMoves(game.gameID()).size());
+        recovered.close();
+    }
+
+    @Test
+    void skipsMovesTheDatabaseAlreadyHas() throws Exception {
+        var crashed = new GamePersister(store, directory, NEVER, 20);
+        play(crashed, move(2, 5, 4, 5));
+        store.appendMoves(List.of(new GameMove(game.gameID(), 1, PackedMove.of(move(2, 5, 4, 5)))));
+        play(crashed, move(7, 5, 5, 5));
+
+        var recovered = new GamePersister(store, directory, NEVER, 20);
+
+        assertEquals(game.game(), store.getGame(game.gameID()).game());
+        assertEquals(2, store.getGame(game.gameID()).game().ply());
+        assertEquals(2, store.getMoves(game.gameID()).size());
+        recovered.close();
+    }
+
+    @Test
+    void logsMovesASnapshotGotAheadOf() throws Exception {
+        var crashed = new GamePersister(store, directory, NEVER, 20);
+        play(crashed, move(2, 5, 4, 5));
+        play(crashed, move(7, 5, 5, 5));
+        store.updateGame(game);
+
+        var recovered = new GamePersister(store, directory, NEVER, 20);
+
+        assertEquals(game.game(), store.getGame(game.gameID()).game());
+        assertEquals(2, store.getMoves(game.gameID()).size());
+        recovered.close();
+    }
+
+    @Test
+    void keepsTheLogWhileTheDatabaseIsDown() throws Exception {
+        var crashed = new GamePersister(store, directory, NEVER, 20);
+        play(crashed, move(2, 5, 4, 5));
+        var unreachable = new MemoryDataAccess() {
+            @Override
+            public GameData getGame(int gameID) throws DataAccessException {
+                throw new DataAccessException("Error: couldn't connect to the database.");
+            }
+        };
+
+        new GamePersister(unreachable, directory, NEVER, 20).close();
+
+        assertEquals(3 * Integer.BYTES, segmentBytes());
+        var recovered = new GamePersister(store, directory, NEVER, 20);
+        assertEquals(game.game(), store.getGame(game.gameID()).game());
+        assertEquals(1, store.getMoves(game.gameID()).size());
+        recovered.close();
+    }
+
+    @Test
+    void queuedGamesCanBeReadUntilFlushed() throws Exception {
+        var persister = new GamePersister(store, directory, NEVER, 20);
+        play(persister, move(2, 5, 4, 5));
+
+        assertSame(game, persister.pendingGame(game.gameID()));
+        persister.flush();
+        assertNull(persister.pendingGame(game.gameID()));
+        persister.close();
+    }
+
+    @Test
+    void eachServerClaimsItsOwnDirectory() throws Exception {
+        var first = GamePersister.claim(directory);
+        var second = GamePersister.claim(directory);
+        assertNotEquals(first.path(), second.path());
+
+        first.close();
+        try (var third = GamePersister.claim(directory)) {
+            assertEquals(first.path(), third.path());
+        }
+        second.close();
+    }
+
+    private void play(GamePersister persister, ChessMove move) throws InvalidMoveException, IOException {
+        game.game().makeMove(move);
+        persister.recordMove(game, move);
+    }
+
+    private long segmentBytes() throws IOException {
+        long bytes = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                bytes += Files.size(path);
+            }
+        }
+        return bytes;
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(ChessPosition.of(fromRow, fromCol), ChessPosition.of(toRow, toCol), null);
+    }
+}
@@ -132,6 +132,76 @@ class GameServiceTest {
 
     }
 
+    @Test
+    void addComputerOpponentSuccess() throws ErrorException, DataAccessException {
+        DataAccess db = new MemoryDataAccess();
+        var user = new UserData("joe", "j@J.com", "toomanysecrets");
+        var userService = new UserService(db);
+        var gameService = new GameService(db);
+
+        var authData = userService.register(user);
+        var gameData = gameService.createGame("game", authData.authToken());
+        gameService.joinGame(new JoinRequest("WHITE", gameData.gameID()), authData.authToken());
+
+        gameService.addComputerOpponent(new JoinRequest("BLACK", gameData.gameID()), authData.authToken());
+
+        var storedGame = db.getGame(gameData.gameID());
+        assertEquals("joe", storedGame.whiteUsername());
+        assertEquals(GameService.COMPUTER_USERNAME, storedGame.blackUsername());
+    }
+
+    @Test
+    void addComputerOpponentTaken() throws ErrorException, DataAccessException {
+        DataAccess db = new MemoryDataAccess();
+        var user = new UserData("joe", "j@J.com", "toomanysecrets");
+        var secondUser = new UserData("bob", "notenoughsecrets", "b@b.com");
+        var userService = new UserService(db);
+        var gameService = new GameService(db);
+
+        var authData = userService.register(user);
+        var secondAuthData = userService.register(secondUser);
+        var gameData = gameService.createGame("game", authData.authToken());
+        gameService.joinGame(new JoinRequest("WHITE", gameData.gameID()), authData.authToken());
+        JoinRequest joinRequest = new JoinRequest("BLACK", gameData.gameID());
+        gameService.joinGame(joinRequest, secondAuthData.authToken());
+
+        assertThrows(GameService.GameTakenException.class,
+                () -> gameService.addComputerOpponent(joinRequest, authData.authToken()));
+    }
+
+    @Test
+    void addComputerOpponentNotAPlayer() throws ErrorException, DataAccessException {
+        DataAccess db = new MemoryDataAccess();
+        var user = new UserData("joe", "j@J.com", "toomanysecrets");
+        var secondUser = new UserData("bob", "notenoughsecrets", "b@b.com");
+        var userService = new UserService(db);
+        var gameService = new GameService(db);
+
+        var authData = userService.register(user);
+        var secondAuthData = userService.register(secondUser);
+        var gameData = gameService.createGame("game", authData.authToken());
+        gameService.joinGame(new JoinRequest("WHITE", gameData.gameID()), authData.authToken());
+        JoinRequest joinRequest = new JoinRequest("BLACK", gameData.gameID());
+
+        assertThrows(GameService.NotAPlayerException.class,
+                () -> gameService.addComputerOpponent(joinRequest, secondAuthData.authToken()));
+        assertNull(db.getGame(gameData.gameID()).blackUsername());
+    }
+
+    @Test
+    void addComputerOpponentUnauthorized() throws ErrorException, DataAccessException {
+        DataAccess db = new MemoryDataAccess();
+        var user = new UserData("joe", "j@J.com", "toomanysecrets");
+        var userService = new UserService(db);
+        var gameService = new GameService(db);
+
+        var authData = userService.register(user);
+        var gameData = gameService.createGame("game", authData.authToken());
+        userService.logout(authData.authToken());
+        JoinRequest joinRequest = new JoinRequest("BLACK", gameData.gameID());
+
+        assertThrows(ErrorException.class, () -> gameService.addComputerOpponent(joinRequest, authData.authToken()));
+    }
 
     @Test
     void listMultipleGames() throws ErrorException, DataAccessException {
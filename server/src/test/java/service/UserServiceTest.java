@@ -43,6 +43,16 @@ class UserServiceTest {
 
     }
 
+    @Test
+    void registerComputerUsername() throws Exception {
+        DataAccess db = new SqlDataAccess();
+        var user = new UserData(GameService.COMPUTER_USERNAME, "j@J.com", "toomanysecrets");
+        var userService = new UserService(db);
+
+        assertThrows(ErrorException.class, () -> userService.register(user));
+        assertNull(db.getUser(GameService.COMPUTER_USERNAME));
+    }
+
     @Test
     void clear() {
     }
@@ -4,8 +4,7 @@ package chess;
 public class BishopMoveGenerator extends SlidingPieceMoveGenerator {
 
     @Override
-    public int[][] getDirections() {
-        return new int[][] {{+1, +1}, {+1, -1}, {-1, +1}, {-1, -1}};
-
+    public int[] getDirections() {
+        return MoveTables.DIAGONAL_DIRECTIONS;
     }
 }
@@ -1,21 +1,81 @@
 package chess;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
+ * <p>
+ * The board is stored as bitboards: one 64-bit mask per piece kind (color and
+ * type) plus occupancy masks per color. Square {@code 0} is row 1, column 1 and
+ * square {@code 63} is row 8, column 8.
+ * <p>
+ * The board also keeps the Zobrist key of its piece placement, the key of
+ * its pawns alone, and the {@link PieceSquareTables} sums and game phase used
+ * by {@link Evaluator}, all updated incrementally whenever a piece is placed
+ * or removed.
+ * <p>
+ * In JSON the board keeps its original form, an 8x8 {@code board} array of
+ * pieces, so games stored before the bitboards still load.
  */
+@JsonAdapter(ChessBoard.GsonAdapter.class)
 public class ChessBoard {
 
-    final private ChessPiece[][] board = new ChessPiece[8][8];
+    static final int PIECE_KINDS = 12;
+    static final int WHITE_PAWN = ChessPiece.PieceType.PAWN.ordinal();
+    static final int BLACK_PAWN = ChessPiece.PieceType.values().length + WHITE_PAWN;
+
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final ChessPiece[] PIECES = new ChessPiece[PIECE_KINDS];
+
+    static {
+        for (int kind = 0; kind < PIECE_KINDS; kind++) {
+            PIECES[kind] = ChessPiece.of(COLORS[kind / TYPES.length], TYPES[kind % TYPES.length]);
+        }
+    }
+
+    final private long[] pieceSets = new long[PIECE_KINDS];
+    final private long[] colorSets = new long[COLORS.length];
+    private long occupied;
+    private transient long key;
+    private transient long pawnKey;
+    private transient int midgameScore;
+    private transient int endgameScore;
+    private transient int phase;
+    private transient boolean derivedComputed;
+
     public ChessBoard() {
 
     }
 
+    /**
+     * Creates an independent copy of another board.
+     *
+     * @param other the board to copy
+     */
+    public ChessBoard(ChessBoard other) {
+        System.arraycopy(other.pieceSets, 0, pieceSets, 0, PIECE_KINDS);
+        System.arraycopy(other.colorSets, 0, colorSets, 0, colorSets.length);
+        occupied = other.occupied;
+        other.ensureDerived();
+        key = other.key;
+        pawnKey = other.pawnKey;
+        midgameScore = other.midgameScore;
+        endgameScore = other.endgameScore;
+        phase = other.phase;
+        derivedComputed = true;
+    }
+
     /**
      * Adds a chess piece to the chessboard
      *
@@ -23,13 +83,16 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-
-        board[position.getRow()-1][position.getColumn()-1] = piece;
-
+        int square = square(position);
+        if (piece == null) {
+            clearSquare(square);
+        } else {
+            putPiece(square, kind(piece.getTeamColor(), piece.getPieceType()));
+        }
     }
 
     public void removePiece(ChessPosition position) {
-        board[position.getRow()-1][position.getColumn()-1] = null;
+        clearSquare(square(position));
     }
 
     /**
@@ -40,8 +103,7 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return board[position.getRow()-1][position.getColumn()-1];
-
+        return pieceAt(square(position));
     }
 
     /**
@@ -49,15 +111,19 @@ public class ChessBoard {
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                board[i][j] = null;
-            }
-        }
+        Arrays.fill(pieceSets, 0L);
+        Arrays.fill(colorSets, 0L);
+        occupied = 0L;
+        key = 0L;
+        pawnKey = 0L;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        derivedComputed = true;
 
         for (int column = 1; column <= 8; column++) {
-            addPiece(new ChessPosition(2, column), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-            addPiece(new ChessPosition(7, column), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(2, column), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(7, column), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
         }
 
         ChessPiece.PieceType[] mainPieces = {
@@ -72,26 +138,324 @@ public class ChessBoard {
         };
 
         for (int col = 1; col <= 8; col++) {
-            addPiece(new ChessPosition(1, col), new ChessPiece(ChessGame.TeamColor.WHITE, mainPieces[col - 1]));
+            addPiece(ChessPosition.of(1, col), ChessPiece.of(ChessGame.TeamColor.WHITE, mainPieces[col - 1]));
         }
 
         for (int col = 1; col <= 8; col++) {
-            addPiece(new ChessPosition(8, col), new ChessPiece(ChessGame.TeamColor.BLACK, mainPieces[col -1]));
+            addPiece(ChessPosition.of(8, col), ChessPiece.of(ChessGame.TeamColor.BLACK, mainPieces[col -1]));
         }
     }
 
+    /**
+     * @return the square index (0-63) for a 1-based row and column
+     */
+    static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    static ChessPosition position(int square) {
+        return ChessPosition.of(row(square), column(square));
+    }
+
+    /**
+     * @return the bitboard index for a piece of the given color and type
+     */
+    static int kind(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * TYPES.length + type.ordinal();
+    }
+
+    static ChessPiece piece(int kind) {
+        return PIECES[kind];
+    }
+
+    /**
+     * @return the bitboard index of the piece on the square, or -1 if it is empty
+     */
+    int kindAt(int square) {
+        long bit = 1L << square;
+        if ((occupied & bit) == 0) {
+            return -1;
+        }
+        int first = (colorSets[0] & bit) != 0 ? 0 : TYPES.length;
+        for (int kind = first; kind < first + TYPES.length; kind++) {
+            if ((pieceSets[kind] & bit) != 0) {
+                return kind;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param square a square index as used by {@link PackedMove}
+     * @return the piece on the square, or null if it is empty
+     */
+    public ChessPiece pieceAt(int square) {
+        int kind = kindAt(square);
+        return kind < 0 ? null : PIECES[kind];
+    }
+
+    void putPiece(int square, int kind) {
+        clearSquare(square);
+        long bit = 1L << square;
+        pieceSets[kind] |= bit;
+        colorSets[kind / TYPES.length] |= bit;
+        occupied |= bit;
+        key ^= Zobrist.PIECE_SQUARE[kind][square];
+        if (kind == WHITE_PAWN || kind == BLACK_PAWN) {
+            pawnKey ^= Zobrist.PIECE_SQUARE[kind][square];
+        }
+        midgameScore += PieceSquareTables.MIDGAME[kind][square];
+        endgameScore += PieceSquareTables.ENDGAME[kind][square];
+        phase += PieceSquareTables.PHASE[kind];
+    }
+
+    void clearSquare(int square) {
+        int kind = kindAt(square);
+        if (kind < 0) {
+            return;
+        }
+        long mask = ~(1L << square);
+        pieceSets[kind] &= mask;
+        colorSets[kind / TYPES.length] &= mask;
+        occupied &= mask;
+        key ^= Zobrist.PIECE_SQUARE[kind][square];
+        if (kind == WHITE_PAWN || kind == BLACK_PAWN) {
+            pawnKey ^= Zobrist.PIECE_SQUARE[kind][square];
+        }
+        midgameScore -= PieceSquareTables.MIDGAME[kind][square];
+        endgameScore -= PieceSquareTables.ENDGAME[kind][square];
+        phase -= PieceSquareTables.PHASE[kind];
+    }
+
+    /**
+     * @return the Zobrist key of the piece placement (no side-to-move, castling
+     * or en passant component)
+     */
+    long key() {
+        ensureDerived();
+        return key;
+    }
+
+    /**
+     * @return the Zobrist key of the pawns alone
+     */
+    long pawnKey() {
+        ensureDerived();
+        return pawnKey;
+    }
+
+    /**
+     * @return white's material and piece-square advantage in the middlegame
+     */
+    int midgameScore() {
+        ensureDerived();
+        return midgameScore;
+    }
+
+    /**
+     * @return white's material and piece-square advantage in the endgame
+     */
+    int endgameScore() {
+        ensureDerived();
+        return endgameScore;
+    }
+
+    /**
+     * @return the game phase, from {@link PieceSquareTables#MAX_PHASE} with
+     * every piece on the board down to 0 with only kings and pawns
+     */
+    int phase() {
+        ensureDerived();
+        return phase;
+    }
+
+    private void ensureDerived() {
+        if (derivedComputed) {
+            return;
+        }
+        // Deserialized boards are filled in without going through putPiece.
+        key = 0L;
+        pawnKey = 0L;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        for (int kind = 0; kind < PIECE_KINDS; kind++) {
+            for (long set = pieceSets[kind]; set != 0; set &= set - 1) {
+                int square = Long.numberOfTrailingZeros(set);
+                key ^= Zobrist.PIECE_SQUARE[kind][square];
+                if (kind == WHITE_PAWN || kind == BLACK_PAWN) {
+                    pawnKey ^= Zobrist.PIECE_SQUARE[kind][square];
+                }
+                midgameScore += PieceSquareTables.MIDGAME[kind][square];
+                endgameScore += PieceSquareTables.ENDGAME[kind][square];
+                phase += PieceSquareTables.PHASE[kind];
+            }
+        }
+        derivedComputed = true;
+    }
+
+    long pieces(int kind) {
+        return pieceSets[kind];
+    }
+
+    /**
+     * @return a bitboard of the squares holding the given team's pieces of the given type
+     */
+    public long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieceSets[kind(color, type)];
+    }
+
+    long occupancy(ChessGame.TeamColor color) {
+        return colorSets[color.ordinal()];
+    }
+
+    long occupancy() {
+        return occupied;
+    }
+
+    /**
+     * @return the square of the given team's king, or -1 if it has none
+     */
+    int kingSquare(ChessGame.TeamColor color) {
+        long king = pieces(color, ChessPiece.PieceType.KING);
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Determines if any piece of the given team attacks a square, whether or not
+     * moving there would be legal for that piece.
+     *
+     * @param position the square to test
+     * @param attacker the team that might be attacking it
+     * @return True if an attacker's piece could capture on that square
+     */
+    public boolean isSquareAttacked(ChessPosition position, ChessGame.TeamColor attacker) {
+        return isSquareAttacked(square(position), attacker);
+    }
+
+    /**
+     * Probes outward from the square along knight, king, pawn and sliding
+     * patterns and looks for a matching attacker at the end of each probe.
+     */
+    boolean isSquareAttacked(int square, ChessGame.TeamColor attacker) {
+        if ((pieces(attacker, ChessPiece.PieceType.KNIGHT) & MoveTables.KNIGHT_ATTACKS[square]) != 0) {
+            return true;
+        }
+        if ((pieces(attacker, ChessPiece.PieceType.KING) & MoveTables.KING_ATTACKS[square]) != 0) {
+            return true;
+        }
+
+        // A pawn attacks this square from wherever a defending pawn here would capture.
+        int defender = 1 - attacker.ordinal();
+        if ((pieces(attacker, ChessPiece.PieceType.PAWN) & MoveTables.PAWN_ATTACKS[defender][square]) != 0) {
+            return true;
+        }
+
+        long queens = pieces(attacker, ChessPiece.PieceType.QUEEN);
+        long straight = pieces(attacker, ChessPiece.PieceType.ROOK) | queens;
+        if (straight != 0 && slidesInto(square, MoveTables.STRAIGHT_DIRECTIONS, straight)) {
+            return true;
+        }
+        long diagonal = pieces(attacker, ChessPiece.PieceType.BISHOP) | queens;
+        return diagonal != 0 && slidesInto(square, MoveTables.DIAGONAL_DIRECTIONS, diagonal);
+    }
+
+    private boolean slidesInto(int square, int[] directions, long sliders) {
+        for (int direction : directions) {
+            for (int target : MoveTables.RAYS[direction][square]) {
+                long bit = 1L << target;
+                if ((occupied & bit) != 0) {
+                    if ((sliders & bit) != 0) {
+                        return true;
+                    }
+                    break;
+                }
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(board, that.board);
+        return Arrays.equals(pieceSets, that.pieceSets);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return Long.hashCode(key());
     }
-}
 
+    /**
+     * Writes the board as rows of pieces, row 1 first, with null for an empty
+     * square.
+     */
+    static class GsonAdapter extends TypeAdapter<ChessBoard> {
+        private final ChessPiece.GsonAdapter pieces = new ChessPiece.GsonAdapter();
+
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            out.beginObject();
+            out.name("board").beginArray();
+            for (int row = 1; row <= 8; row++) {
+                out.beginArray();
+                for (int col = 1; col <= 8; col++) {
+                    ChessPiece piece = board.pieceAt(square(row, col));
+                    if (piece == null) {
+                        out.nullValue();
+                    } else {
+                        pieces.write(out, piece);
+                    }
+                }
+                out.endArray();
+            }
+            out.endArray();
+            out.endObject();
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            ChessBoard board = new ChessBoard();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "board" -> readSquares(in, board);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return board;
+        }
+
+        private void readSquares(JsonReader in, ChessBoard board) throws IOException {
+            in.beginArray();
+            for (int row = 1; in.hasNext(); row++) {
+                in.beginArray();
+                for (int col = 1; in.hasNext(); col++) {
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else {
+                        board.addPiece(ChessPosition.of(row, col), pieces.read(in));
+                    }
+                }
+                in.endArray();
+            }
+            in.endArray();
+        }
+    }
+}
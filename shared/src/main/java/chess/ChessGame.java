@@ -1,8 +1,20 @@
 package chess;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
 import java.util.Objects;
 
 /**
@@ -11,12 +23,55 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessGame.GsonAdapterFactory.class)
 public class ChessGame {
 
+    private static final int INITIAL_UNDO_CAPACITY = 128;
+    private static final int INITIAL_HISTORY_CAPACITY = 16;
+
+    /**
+     * Plies without a capture or pawn move after which either player may claim a draw.
+     */
+    public static final int FIFTY_MOVE_PLIES = 100;
+
+    static final int WHITE_KINGSIDE = 1;
+    static final int WHITE_QUEENSIDE = 2;
+    static final int BLACK_KINGSIDE = 4;
+    static final int BLACK_QUEENSIDE = 8;
+    static final int NO_EN_PASSANT = -1;
+
+    // The castling rights that survive a move from or to each square.
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[ChessBoard.square(1, 5)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[ChessBoard.square(1, 8)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[ChessBoard.square(1, 1)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[ChessBoard.square(8, 5)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[ChessBoard.square(8, 8)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[ChessBoard.square(8, 1)] &= ~BLACK_QUEENSIDE;
+    }
+
+    private static volatile Tablebase tablebase;
+
     private TeamColor currentTeam;
     private ChessBoard board;
-    private ChessMove move;
-    private ChessPiece piece;
+    // Keys of the positions before the current one, oldest first. The ones
+    // since the last capture or pawn move are stored with the game so
+    // repetitions are found across server reloads.
+    private long[] keyHistory = new long[INITIAL_HISTORY_CAPACITY];
+    private int historySize;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private int castlingRights;
+    // The square a pawn skipped over on the last move, or NO_EN_PASSANT.
+    private int enPassantSquare = NO_EN_PASSANT;
+    private transient long[] undoStack = new long[INITIAL_UNDO_CAPACITY];
+    private transient int undoSize;
+    private transient MoveList scratchMoves = new MoveList();
+    private transient GameStatus cachedStatus;
+    private transient long cachedStatusKey;
 
     public ChessGame() {
         this.board = new ChessBoard();
@@ -24,6 +79,45 @@ public class ChessGame {
         board.resetBoard();
 
         this.currentTeam = TeamColor.WHITE;
+        this.castlingRights = inferCastlingRights(board);
+    }
+
+    /**
+     * Creates an independent copy of another game's position and turn, for
+     * example to search it on another thread. Moves made on the original
+     * cannot be taken back on the copy.
+     *
+     * @param other the game to copy
+     */
+    public ChessGame(ChessGame other) {
+        this.board = new ChessBoard(other.board);
+        this.currentTeam = other.currentTeam;
+        this.keyHistory = Arrays.copyOf(other.keyHistory, Math.max(other.historySize, INITIAL_HISTORY_CAPACITY));
+        this.historySize = other.historySize;
+        this.halfmoveClock = other.halfmoveClock;
+        this.fullmoveNumber = other.fullmoveNumber;
+        this.castlingRights = other.castlingRights;
+        this.enPassantSquare = other.enPassantSquare;
+    }
+
+    /**
+     * Reads a position in Forsyth-Edwards Notation, for example
+     * {@code "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1"}.
+     * The fields after the side to move are optional.
+     *
+     * @param fen the position
+     * @return a game in that position with no earlier moves
+     * @throws IllegalArgumentException if the text is not a valid FEN
+     */
+    public static ChessGame fromFen(String fen) {
+        return Fen.parse(fen);
+    }
+
+    /**
+     * @return the current position in Forsyth-Edwards Notation
+     */
+    public String toFen() {
+        return Fen.format(this);
     }
 
     /**
@@ -50,6 +144,16 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Enum identifying the state of the game for the team whose turn it is
+     */
+    public enum GameStatus {
+        ACTIVE,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -58,51 +162,87 @@ public class ChessGame {
      * startPosition
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
-        ChessPiece currentPiece = board.getPiece(startPosition);
-        if (currentPiece == null) {
+        int from = ChessBoard.square(startPosition);
+        if (board.kindAt(from) < 0) {
             return new ArrayList<>();
         }
 
-        Collection<ChessMove> allMoves = currentPiece.pieceMoves(board, startPosition);
-
-        Collection<ChessMove> legalMoves = new ArrayList<>();
-
-        for (ChessMove move : allMoves) {
-            ChessPiece testCapture = board.getPiece(move.getEndPosition());
-            board.removePiece(move.getStartPosition());
-            board.addPiece(move.getEndPosition(), currentPiece);
-
-            if (!isInCheck(currentPiece.getTeamColor())) {
-                legalMoves.add(move);
-            }
-
-            board.removePiece(move.getEndPosition());
-            board.addPiece(move.getStartPosition(), currentPiece);
+        scratchMoves.clear();
+        pieceLegalMoves(from, scratchMoves);
+        return scratchMoves.toChessMoves(0);
+    }
 
-            if (testCapture != null) {
-                board.addPiece(move.getEndPosition(), testCapture);
-            }
+    /**
+     * Appends every legal move for the team whose turn it is to a buffer.
+     *
+     * @param moves the buffer to append {@link PackedMove} ints to
+     * @return the number of moves appended
+     */
+    public int legalMoves(MoveList moves) {
+        int start = moves.size();
+        for (long pieces = board.occupancy(currentTeam); pieces != 0; pieces &= pieces - 1) {
+            pieceLegalMoves(Long.numberOfTrailingZeros(pieces), moves);
         }
-
-        return legalMoves;
+        return moves.size() - start;
     }
 
-    private void executeMove(ChessMove move) {
-        piece = board.getPiece(move.getStartPosition());
-        int lastRow = (piece.getTeamColor() == ChessGame.TeamColor.WHITE) ? 8 : 1;
-
-        if (board.getPiece(move.getEndPosition()) != null) {
-            board.removePiece(move.getEndPosition());
+    /**
+     * Appends every pseudo-legal move for the team whose turn it is to a buffer:
+     * moves that follow the piece rules but may leave the mover's own king in
+     * check. Searches that test legality after making a move use this to avoid
+     * filtering moves they later prune.
+     *
+     * @param moves the buffer to append {@link PackedMove} ints to
+     * @return the number of moves appended
+     */
+    public int pseudoLegalMoves(MoveList moves) {
+        int start = moves.size();
+        for (long pieces = board.occupancy(currentTeam); pieces != 0; pieces &= pieces - 1) {
+            pieceMoves(Long.numberOfTrailingZeros(pieces), moves);
         }
+        return moves.size() - start;
+    }
 
-        board.removePiece(move.getStartPosition());
-        board.addPiece(move.getEndPosition(), piece);
+    /**
+     * Generates the piece's pseudo-legal moves into the buffer, including
+     * castling and en passant, which depend on the game as well as the board.
+     */
+    private void pieceMoves(int from, MoveList moves) {
+        ChessPiece piece = board.pieceAt(from);
+        ChessPiece.generator(piece.getPieceType()).pieceMoves(board, from, moves);
+        if (piece.getPieceType() == ChessPiece.PieceType.KING && castlingRights != 0) {
+            KingMoveGenerator.castlingMoves(board, from, castlingRights, moves);
+        } else if (piece.getPieceType() == ChessPiece.PieceType.PAWN && enPassantSquare != NO_EN_PASSANT
+                && piece.getTeamColor() == currentTeam) {
+            PawnMoveGenerator.enPassantMoves(board, from, enPassantSquare, moves);
+        }
+    }
 
-        if (piece.getPieceType() == ChessPiece.PieceType.PAWN && move.getEndPosition().getRow() == lastRow) {
-                ChessPiece.PieceType promoType = (move.getPromotionPiece() != null) ? move.getPromotionPiece() : ChessPiece.PieceType.QUEEN;
-                board.removePiece(move.getEndPosition());
-                board.addPiece(move.getEndPosition(), new ChessPiece(piece.getTeamColor(), promoType));
+    /**
+     * Generates the piece's pseudo-legal moves into the buffer, then compacts
+     * away the ones that leave its own king in check.
+     */
+    private int pieceLegalMoves(int from, MoveList moves) {
+        int start = moves.size();
+        ChessPiece piece = board.pieceAt(from);
+        pieceMoves(from, moves);
+
+        int kept = start;
+        for (int i = start; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (keepsKingSafe(move, piece.getTeamColor())) {
+                moves.set(kept++, move);
+            }
         }
+        moves.truncate(kept);
+        return kept - start;
+    }
+
+    private boolean keepsKingSafe(int move, TeamColor mover) {
+        makeMove(move);
+        boolean safe = !isInCheck(mover);
+        unmakeMove();
+        return safe;
     }
 
     /**
@@ -112,78 +252,301 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
-        piece = board.getPiece(move.getStartPosition());
+        ChessPiece piece = board.getPiece(move.getStartPosition());
 
         if (piece == null) {
             throw new InvalidMoveException("No piece at this position.");
         } else if (piece.getTeamColor() != currentTeam) {
             throw new InvalidMoveException("You can't move this piece.");
-        } else if (!validMoves(move.getStartPosition()).contains(move)) {
-            throw new InvalidMoveException("You can't move there.");
-        } else if (isInCheck(piece.getTeamColor())) {
-            throw new InvalidMoveException("The piece is in check.");
         }
 
+        int requested = PackedMove.of(move);
+        scratchMoves.clear();
+        pieceLegalMoves(PackedMove.from(requested), scratchMoves);
+        for (int i = 0; i < scratchMoves.size(); i++) {
+            if (PackedMove.sameMove(scratchMoves.get(i), requested)) {
+                makeMove(scratchMoves.get(i));
+                return;
+            }
+        }
+        throw new InvalidMoveException("You can't move there.");
+    }
+
+    /**
+     * Plays a move without checking that it is legal and passes the turn. The
+     * move can be taken back with {@link #unmakeMove()}.
+     * <p>
+     * Nothing is allocated: the state needed to undo the move is recorded on
+     * a preallocated stack, so this is safe to use from legality checks and
+     * searches that call back into this game.
+     *
+     * @param move a move encoded with {@link PackedMove}
+     */
+    public void makeMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int moved = board.kindAt(from);
+        int captured = board.kindAt(to);
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        boolean pawn = moved == ChessBoard.WHITE_PAWN || moved == ChessBoard.BLACK_PAWN;
+        boolean enPassant = pawn && to == enPassantSquare;
+        int captureSquare = enPassant ? enPassantCaptureSquare(from, to) : to;
+        if (enPassant) {
+            captured = board.kindAt(captureSquare);
+        }
 
-        executeMove(move);
+        pushUndo(move, captured);
+        pushHistory(positionKey());
+        halfmoveClock = (captured >= 0 || pawn) ? 0 : halfmoveClock + 1;
 
-        setTeamTurn(currentTeam == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE);
+        board.clearSquare(from);
+        if (enPassant) {
+            board.clearSquare(captureSquare);
+        }
+        if (promotion != null) {
+            board.putPiece(to, ChessBoard.kind(ChessBoard.piece(moved).getTeamColor(), promotion));
+        } else {
+            board.putPiece(to, moved);
+        }
+        if (isCastling(moved, from, to)) {
+            moveCastlingRook(moved, from, to, false);
+        }
 
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        enPassantSquare = (pawn && Math.abs(to - from) == 16) ? (from + to) / 2 : NO_EN_PASSANT;
+        if (currentTeam == TeamColor.BLACK) {
+            fullmoveNumber++;
+        }
+        currentTeam = opponent(currentTeam);
     }
 
     /**
-     * Determines if the given team is in check
+     * Takes back the last move played with {@link #makeMove(int)}, restoring any
+     * captured piece and the turn.
      *
-     * @param teamColor which team to check for check
-     * @return True if the specified team is in check
+     * @throws IllegalStateException if there is no move to take back
      */
-    public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = findKing(teamColor);
+    public void unmakeMove() {
+        if (undoSize == 0) {
+            throw new IllegalStateException("No move to take back.");
+        }
+        long entry = undoStack[--undoSize];
+        int move = (int) entry;
+        int captured = (int) ((entry >>> 32) & 0xF) - 1;
+        castlingRights = (int) ((entry >>> 36) & 0xF);
+        enPassantSquare = (int) ((entry >>> 40) & 0x7F) - 1;
+        halfmoveClock = (int) (entry >>> 47);
+        historySize--;
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+
+        currentTeam = opponent(currentTeam);
+        if (currentTeam == TeamColor.BLACK) {
+            fullmoveNumber--;
+        }
 
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                if (checkAttackKing(new ChessPosition(row, col), teamColor, kingPosition)) {
-                    return true;
-                }
-            }
+        int landed = board.kindAt(to);
+        int moved = (PackedMove.promotion(move) != null)
+                ? ChessBoard.kind(ChessBoard.piece(landed).getTeamColor(), ChessPiece.PieceType.PAWN)
+                : landed;
+        boolean pawn = moved == ChessBoard.WHITE_PAWN || moved == ChessBoard.BLACK_PAWN;
+
+        board.clearSquare(to);
+        board.putPiece(from, moved);
+        if (captured >= 0) {
+            board.putPiece((pawn && to == enPassantSquare) ? enPassantCaptureSquare(from, to) : to, captured);
+        }
+        if (isCastling(moved, from, to)) {
+            moveCastlingRook(moved, from, to, true);
         }
-        return false;
     }
 
-    private boolean checkAttackKing(ChessPosition position, TeamColor team, ChessPosition kingPosition) {
-        ChessPiece piece = board.getPiece(position);
+    private static boolean isCastling(int moved, int from, int to) {
+        return ChessBoard.piece(moved).getPieceType() == ChessPiece.PieceType.KING && Math.abs(to - from) == 2;
+    }
 
-        if (piece != null && piece.getTeamColor() != team) {
-            for (ChessMove move : possibleLegalMoves(position)) {
-                if (move.getEndPosition().equals(kingPosition)) {
-                    return true;
-                }
-            }
+    /**
+     * Moves the rook that castles with the king, or puts it back.
+     */
+    private void moveCastlingRook(int king, int from, int to, boolean undo) {
+        int rook = ChessBoard.kind(ChessBoard.piece(king).getTeamColor(), ChessPiece.PieceType.ROOK);
+        int rookHome = (to > from) ? from + 3 : from - 4;
+        int rookCastled = (from + to) / 2;
+        board.clearSquare(undo ? rookCastled : rookHome);
+        board.putPiece(undo ? rookHome : rookCastled, rook);
+    }
+
+    /**
+     * @return the square of the pawn taken en passant: beside the capturing
+     * pawn's start, on the column it captures toward
+     */
+    private static int enPassantCaptureSquare(int from, int to) {
+        return (from & ~7) | (to & 7);
+    }
+
+    /**
+     * Grants each castling right whose king and rook stand on their starting
+     * squares, since a board on its own does not record whether they moved.
+     */
+    private static int inferCastlingRights(ChessBoard board) {
+        int rights = 0;
+        int whiteKing = ChessBoard.kind(TeamColor.WHITE, ChessPiece.PieceType.KING);
+        int whiteRook = ChessBoard.kind(TeamColor.WHITE, ChessPiece.PieceType.ROOK);
+        int blackKing = ChessBoard.kind(TeamColor.BLACK, ChessPiece.PieceType.KING);
+        int blackRook = ChessBoard.kind(TeamColor.BLACK, ChessPiece.PieceType.ROOK);
+        if (board.kindAt(ChessBoard.square(1, 5)) == whiteKing) {
+            rights |= (board.kindAt(ChessBoard.square(1, 8)) == whiteRook) ? WHITE_KINGSIDE : 0;
+            rights |= (board.kindAt(ChessBoard.square(1, 1)) == whiteRook) ? WHITE_QUEENSIDE : 0;
         }
-        return false;
+        if (board.kindAt(ChessBoard.square(8, 5)) == blackKing) {
+            rights |= (board.kindAt(ChessBoard.square(8, 8)) == blackRook) ? BLACK_KINGSIDE : 0;
+            rights |= (board.kindAt(ChessBoard.square(8, 1)) == blackRook) ? BLACK_QUEENSIDE : 0;
+        }
+        return rights;
     }
 
     /**
-     * Determines if the given team is in checkmate
-     *
-     * @param teamColor which team to check for checkmate
-     * @return True if the specified team is in checkmate
+     * @return the castling rights still available, as {@code WHITE_KINGSIDE}
+     * and the other flags
      */
-    public boolean isInCheckmate(TeamColor teamColor) {
+    int castlingRights() {
+        return castlingRights;
+    }
 
-        List<ChessPosition> allPieces = checkAllPieces(teamColor);
+    /**
+     * @return the square a pawn skipped over on the last move, or
+     * {@link #NO_EN_PASSANT}
+     */
+    int enPassantSquare() {
+        return enPassantSquare;
+    }
 
-        if (!isInCheck(teamColor)) {
-            return false;
+    /**
+     * @return the en passant square if the side to move has a pawn that can
+     * capture onto it, otherwise {@link #NO_EN_PASSANT}. Only then does it
+     * change which moves are available, so only then is it part of the
+     * position's identity.
+     */
+    private int capturableEnPassantSquare() {
+        if (enPassantSquare == NO_EN_PASSANT) {
+            return NO_EN_PASSANT;
         }
+        long capturers = MoveTables.PAWN_ATTACKS[opponent(currentTeam).ordinal()][enPassantSquare];
+        return ((capturers & board.pieces(currentTeam, ChessPiece.PieceType.PAWN)) != 0)
+                ? enPassantSquare
+                : NO_EN_PASSANT;
+    }
 
-        for (ChessPosition piece : allPieces) {
+    /**
+     * Undo entries pack the move into the low 32 bits, then the captured
+     * piece's bitboard index plus one (zero for no capture) in 4 bits, the
+     * castling rights in 4, the en passant square plus one in 7 and the
+     * halfmove clock above that, all as they were before the move.
+     */
+    private void pushUndo(int move, int captured) {
+        if (undoSize == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoSize * 2);
+        }
+        undoStack[undoSize++] = (move & 0xFFFFFFFFL)
+                | ((long) (captured + 1) << 32)
+                | ((long) castlingRights << 36)
+                | ((long) (enPassantSquare + 1) << 40)
+                | ((long) halfmoveClock << 47);
+    }
+
+    private void pushHistory(long key) {
+        if (historySize == keyHistory.length) {
+            keyHistory = Arrays.copyOf(keyHistory, Math.max(INITIAL_HISTORY_CAPACITY, historySize * 2));
+        }
+        keyHistory[historySize++] = key;
+    }
 
-            if (!validMoves(piece).isEmpty()) {
-                return false;
+    /**
+     * Counts earlier occurrences of the current position. Only positions with
+     * the same side to move since the last capture or pawn move can match, so
+     * at most {@link #halfmoveClock()} / 2 keys are compared.
+     *
+     * @return how many times the current position has occurred before
+     */
+    public int repetitions() {
+        long key = positionKey();
+        int oldest = Math.max(0, historySize - halfmoveClock);
+        int count = 0;
+        for (int i = historySize - 2; i >= oldest; i -= 2) {
+            if (keyHistory[i] == key) {
+                count++;
             }
         }
-        return true;
+        return count;
+    }
+
+    /**
+     * @return True if the current position has now occurred three times
+     */
+    public boolean isThreefoldRepetition() {
+        return repetitions() >= 2;
+    }
+
+    /**
+     * @return the number of plies since the last capture or pawn move
+     */
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * @return the number of the current move, starting at 1 and increasing
+     * after each black move
+     */
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * @return the number of plies played to reach this position, counted from
+     * the fullmove number and side to move so it is 0 in the starting position
+     */
+    public int ply() {
+        return (fullmoveNumber - 1) * 2 + (currentTeam == TeamColor.BLACK ? 1 : 0);
+    }
+
+    /**
+     * @return True if fifty moves by each side have passed without a capture
+     * or pawn move
+     */
+    public boolean isFiftyMoveDraw() {
+        return halfmoveClock >= FIFTY_MOVE_PLIES;
+    }
+
+    /**
+     * Determines if the given team is in check
+     *
+     * @param teamColor which team to check for check
+     * @return True if the specified team is in check
+     */
+    public boolean isInCheck(TeamColor teamColor) {
+        int kingSquare = board.kingSquare(teamColor);
+        if (kingSquare < 0) {
+            throw new RuntimeException("King is missing.");
+        }
+        return board.isSquareAttacked(kingSquare, opponent(teamColor));
+    }
+
+    static TeamColor opponent(TeamColor teamColor) {
+        return (teamColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+    }
+
+    /**
+     * Determines if the given team is in checkmate
+     *
+     * @param teamColor which team to check for checkmate
+     * @return True if the specified team is in checkmate
+     */
+    public boolean isInCheckmate(TeamColor teamColor) {
+        if (teamColor == currentTeam) {
+            return status() == GameStatus.CHECKMATE;
+        }
+        return isInCheck(teamColor) && !hasLegalMove(teamColor);
     }
 
     /**
@@ -194,63 +557,88 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-
-        if (isInCheck(teamColor)) {
-            return false;
+        if (teamColor == currentTeam) {
+            return status() == GameStatus.STALEMATE;
         }
+        return !isInCheck(teamColor) && !hasLegalMove(teamColor);
+    }
 
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition piecePosition = new ChessPosition(row, col);
-                ChessPiece currentPiece = getPiece(piecePosition);
-
-                if (currentPiece != null && currentPiece.getTeamColor() == teamColor) {
-                    Collection<ChessMove> legalMoves = validMoves(piecePosition);
-                    if (!legalMoves.isEmpty()) {
-                        return false;
-                    }
-                }
-            }
+    /**
+     * Determines check, whether any legal move exists and the resulting game
+     * state for the team whose turn it is, in a single pass. The result is
+     * cached until the position changes, so calling this after every move and
+     * then asking again (or calling isInCheckmate/isInStalemate for the same
+     * team) costs nothing extra.
+     *
+     * @return the status of the team whose turn it is
+     */
+    public GameStatus status() {
+        long key = positionKey();
+        if (cachedStatus != null && cachedStatusKey == key) {
+            return cachedStatus;
         }
 
-        return true;
+        boolean inCheck = isInCheck(currentTeam);
+        // A decisive endgame table entry settles whether a move exists without generating any.
+        Tablebase tables = tablebase;
+        int endgame = (tables == null) ? Tablebase.NOT_FOUND : tables.probeValue(this);
+        boolean canMove = (endgame == Tablebase.NOT_FOUND || endgame == Tablebase.DRAW)
+                ? hasLegalMove(currentTeam)
+                : endgame != Tablebase.loss(0);
+        if (canMove) {
+            cachedStatus = inCheck ? GameStatus.CHECK : GameStatus.ACTIVE;
+        } else {
+            cachedStatus = inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        cachedStatusKey = key;
+        return cachedStatus;
     }
 
-    private ChessPiece getPiece(ChessPosition piecePosition) {
-        return board.getPiece(piecePosition);
+    /**
+     * Looks the position up in the endgame tables installed with
+     * {@link #useTablebase}.
+     *
+     * @return the result with perfect play for the team whose turn it is, or
+     * null if no tables are installed or they do not cover the position
+     */
+    public Tablebase.Result endgameResult() {
+        Tablebase tables = tablebase;
+        return (tables == null) ? null : tables.probe(this);
     }
 
-    private ChessPosition findKing(TeamColor teamColor) {
-        for (int row = 1; row <= 8; row ++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
-                if (piece != null && piece.getTeamColor() == teamColor && piece.getPieceType() == ChessPiece.PieceType.KING) {
-                    return new ChessPosition(row, col);
-                }
-            }
-        }
-        throw new RuntimeException("King is missing.");
+    /**
+     * Installs endgame tables for every game in this process to consult.
+     *
+     * @param tables the tables, or null to stop using them
+     */
+    public static void useTablebase(Tablebase tables) {
+        tablebase = tables;
     }
 
-    private List<ChessPosition> checkAllPieces(TeamColor teamColor) {
-        List<ChessPosition> allPositions = new ArrayList<>();
-
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col<= 8; col++) {
-                ChessPosition piecePosition = new ChessPosition(row, col);
-                ChessPiece currentPiece = board.getPiece(piecePosition);
+    public static Tablebase tablebase() {
+        return tablebase;
+    }
 
-                if (currentPiece != null && currentPiece.getTeamColor() == teamColor) {
-                    allPositions.add(piecePosition);
+    /**
+     * Stops at the first pseudo-legal move that keeps the king safe rather than
+     * filtering every move of every piece.
+     */
+    private boolean hasLegalMove(TeamColor teamColor) {
+        for (long pieces = board.occupancy(teamColor); pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            scratchMoves.clear();
+            pieceMoves(from, scratchMoves);
+            for (int i = 0; i < scratchMoves.size(); i++) {
+                if (keepsKingSafe(scratchMoves.get(i), teamColor)) {
+                    return true;
                 }
             }
         }
-
-        return allPositions;
+        return false;
     }
 
     public Collection<ChessMove> possibleLegalMoves(ChessPosition startPosition) {
-        piece = board.getPiece(startPosition);
+        ChessPiece piece = board.getPiece(startPosition);
 
         if (piece == null) {
             return new ArrayList<>();
@@ -267,6 +655,26 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        undoSize = 0;
+        historySize = 0;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        castlingRights = inferCastlingRights(board);
+        enPassantSquare = NO_EN_PASSANT;
+    }
+
+    /**
+     * Sets up a position whose castling rights, en passant square and move
+     * counters are known rather than inferred, as read from a FEN.
+     */
+    void setPosition(ChessBoard board, TeamColor turn, int castlingRights, int enPassantSquare,
+                     int halfmoveClock, int fullmoveNumber) {
+        setBoard(board);
+        this.currentTeam = turn;
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
     }
 
     /**
@@ -278,6 +686,26 @@ public class ChessGame {
         return board;
     }
 
+    /**
+     * Gets a 64-bit Zobrist key for the current position, suitable for position
+     * caches and deduplication. It is maintained incrementally as pieces move,
+     * so this is O(1).
+     *
+     * @return the key of the board, the side to move, the castling rights
+     * and any en passant capture available
+     */
+    public long positionKey() {
+        long positionKey = board.key() ^ Zobrist.CASTLING[castlingRights];
+        if (currentTeam == TeamColor.BLACK) {
+            positionKey ^= Zobrist.BLACK_TO_MOVE;
+        }
+        int enPassant = capturableEnPassantSquare();
+        if (enPassant != NO_EN_PASSANT) {
+            positionKey ^= Zobrist.EN_PASSANT_FILE[enPassant & 7];
+        }
+        return positionKey;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
@@ -285,13 +713,52 @@ public class ChessGame {
         }
         ChessGame chessGame = (ChessGame) o;
         return currentTeam == chessGame.currentTeam
-                && Objects.equals(board, chessGame.board)
-                && Objects.equals(move, chessGame.move)
-                && Objects.equals(piece, chessGame.piece);
+                && castlingRights == chessGame.castlingRights
+                && capturableEnPassantSquare() == chessGame.capturableEnPassantSquare()
+                && Objects.equals(board, chessGame.board);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(currentTeam, board, move, piece);
+        return Long.hashCode(positionKey());
+    }
+
+    /**
+     * Serializes games field by field, except that only the history keys that
+     * can still repeat are written, those since the last capture or pawn move,
+     * rather than the whole history array with its spare capacity.
+     */
+    static class GsonAdapterFactory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != ChessGame.class) {
+                return null;
+            }
+            TypeAdapter<ChessGame> fields = gson.getDelegateAdapter(this, TypeToken.get(ChessGame.class));
+            TypeAdapter<JsonElement> elements = gson.getAdapter(JsonElement.class);
+            return (TypeAdapter<T>) new TypeAdapter<ChessGame>() {
+                @Override
+                public void write(JsonWriter out, ChessGame game) throws IOException {
+                    if (game == null) {
+                        out.nullValue();
+                        return;
+                    }
+                    JsonObject json = fields.toJsonTree(game).getAsJsonObject();
+                    JsonArray history = new JsonArray();
+                    for (int i = Math.max(0, game.historySize - game.halfmoveClock); i < game.historySize; i++) {
+                        history.add(game.keyHistory[i]);
+                    }
+                    json.add("keyHistory", history);
+                    json.addProperty("historySize", history.size());
+                    elements.write(out, json);
+                }
+
+                @Override
+                public ChessGame read(JsonReader in) throws IOException {
+                    return fields.read(in);
+                }
+            };
+        }
     }
 }
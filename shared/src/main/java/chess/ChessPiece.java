@@ -1,8 +1,12 @@
 package chess;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Objects;
 
 /**
@@ -11,6 +15,7 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessPiece.GsonAdapter.class)
 public class ChessPiece {
 
     private final ChessGame.TeamColor pieceColor;
@@ -21,6 +26,16 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * Returns the shared instance for a color and type. Pieces are immutable, so
+     * callers never need a fresh one.
+     *
+     * @return the piece of the given team and type
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        return PIECES[pieceColor.ordinal()][type.ordinal()];
+    }
+
     /**
      * The various different chess piece options
      */
@@ -56,33 +71,42 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        ChessPiece piece = board.getPiece(myPosition);
-        Collection<ChessMove> moves = new HashSet<>();
-        if (piece.getPieceType() == PieceType.BISHOP) {
-            MoveGenerator generator = new BishopMoveGenerator();
-            moves = generator.pieceMoves(board, myPosition);
-        } else if (piece.getPieceType() == PieceType.ROOK) {
-            MoveGenerator generator = new RookMoveGenerator();
-            moves = generator.pieceMoves(board, myPosition);
-        } else if (piece.getPieceType() == PieceType.QUEEN) {
-            MoveGenerator generator = new QueenMoveGenerator();
-            moves = generator.pieceMoves(board, myPosition);
-        } else if (piece.getPieceType() == PieceType.KNIGHT) {
-            MoveGenerator generator = new KnightMoveGenerator();
-            moves = generator.pieceMoves(board, myPosition);
-        } else if (piece.getPieceType() == PieceType.KING) {
-            MoveGenerator generator = new KingMoveGenerator();
-            moves = generator.pieceMoves(board, myPosition);
-        } else if (piece.getPieceType() == PieceType.PAWN){
-            MoveGenerator generator = new PawnMoveGenerator();
-            moves = generator.pieceMoves(board, myPosition);
+        return generator(type).pieceMoves(board, myPosition);
+    }
+
+    private static final ChessPiece[][] PIECES = new ChessPiece[ChessGame.TeamColor.values().length][PieceType.values().length];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType pieceType : PieceType.values()) {
+                PIECES[color.ordinal()][pieceType.ordinal()] = new ChessPiece(color, pieceType);
+            }
         }
-        return moves;
+    }
+
+    private static final MoveGenerator[] GENERATORS = new MoveGenerator[PieceType.values().length];
 
+    static {
+        GENERATORS[PieceType.KING.ordinal()] = new KingMoveGenerator();
+        GENERATORS[PieceType.QUEEN.ordinal()] = new QueenMoveGenerator();
+        GENERATORS[PieceType.BISHOP.ordinal()] = new BishopMoveGenerator();
+        GENERATORS[PieceType.KNIGHT.ordinal()] = new KnightMoveGenerator();
+        GENERATORS[PieceType.ROOK.ordinal()] = new RookMoveGenerator();
+        GENERATORS[PieceType.PAWN.ordinal()] = new PawnMoveGenerator();
+    }
+
+    /**
+     * @return the shared, stateless move generator for a piece type
+     */
+    static MoveGenerator generator(PieceType type) {
+        return GENERATORS[type.ordinal()];
     }
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
@@ -94,4 +118,37 @@ public class ChessPiece {
     public int hashCode() {
         return Objects.hash(pieceColor, type);
     }
+
+    /**
+     * Reads pieces through {@link #of(ChessGame.TeamColor, PieceType)} so
+     * deserialized pieces share the interned instances.
+     */
+    static class GsonAdapter extends TypeAdapter<ChessPiece> {
+        @Override
+        public void write(JsonWriter out, ChessPiece piece) throws IOException {
+            out.beginObject();
+            out.name("pieceColor").value(piece.pieceColor.name());
+            out.name("type").value(piece.type.name());
+            out.endObject();
+        }
+
+        @Override
+        public ChessPiece read(JsonReader in) throws IOException {
+            ChessGame.TeamColor color = null;
+            PieceType pieceType = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pieceColor" -> color = ChessGame.TeamColor.valueOf(in.nextString());
+                    case "type" -> pieceType = PieceType.valueOf(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (color == null || pieceType == null) {
+                return new ChessPiece(color, pieceType);
+            }
+            return of(color, pieceType);
+        }
+    }
 }
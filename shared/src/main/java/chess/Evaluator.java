@@ -0,0 +1,256 @@
+package chess;
+
+/**
+ * Static evaluation of a position in centipawns.
+ * <p>
+ * Material and piece-square values come from sums {@link ChessBoard} keeps up
+ * to date as pieces move, so they cost nothing to read. Mobility and king
+ * safety are computed from the bitboards. Pawn structure (doubled, isolated
+ * and passed pawns) changes rarely, so it is cached by the board's pawn key.
+ * Every term has a middlegame and an endgame weight, blended by how much
+ * material is left.
+ * <p>
+ * The pawn cache is lock-free: each entry stores its key XORed with its data,
+ * so a torn write reads as a miss. One evaluator can be shared by any number
+ * of threads.
+ */
+public final class Evaluator {
+
+    private static final int PAWN_CACHE_ENTRIES = 1 << 14;
+
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+
+    // Indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN.
+    private static final int[] MOBILITY_MIDGAME = {0, 1, 5, 4, 2, 0};
+    private static final int[] MOBILITY_ENDGAME = {0, 2, 5, 4, 4, 0};
+    // The number of squares at which a piece is neither helped nor hurt.
+    private static final int[] MOBILITY_BASELINE = {0, 14, 7, 4, 7, 0};
+    private static final int[] KING_ATTACK_WEIGHTS = {0, 5, 2, 2, 3, 0};
+    private static final ChessPiece.PieceType[] MOBILE_TYPES = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
+    };
+    private static final int MAX_KING_DANGER = 500;
+
+    private static final int SHIELD_NEAR = 15;
+    private static final int SHIELD_FAR = 8;
+
+    private static final int DOUBLED_MIDGAME = 10;
+    private static final int DOUBLED_ENDGAME = 20;
+    private static final int ISOLATED_MIDGAME = 10;
+    private static final int ISOLATED_ENDGAME = 15;
+    // Indexed by row counted from the pawn's own side.
+    private static final int[] PASSED_MIDGAME = {0, 0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 0, 10, 15, 25, 45, 75, 110, 0};
+
+    private static final long COLUMN_1 = 0x0101_0101_0101_0101L;
+    private static final long COLUMN_8 = COLUMN_1 << 7;
+    private static final long[] COLUMNS = new long[8];
+    private static final long[] ADJACENT_COLUMNS = new long[8];
+    // Squares in front of a pawn on its own column, and on its own and adjacent columns.
+    private static final long[][] AHEAD = new long[2][64];
+    private static final long[][] PASSED_SPAN = new long[2][64];
+
+    static {
+        for (int col = 0; col < 8; col++) {
+            COLUMNS[col] = COLUMN_1 << col;
+        }
+        for (int col = 0; col < 8; col++) {
+            ADJACENT_COLUMNS[col] = (col > 0 ? COLUMNS[col - 1] : 0L) | (col < 7 ? COLUMNS[col + 1] : 0L);
+        }
+        for (int square = 0; square < 64; square++) {
+            int col = square & 7;
+            long rowsAboveWhite = (square >= 56) ? 0L : -1L << ((square | 7) + 1);
+            long rowsBelowBlack = (1L << (square & ~7)) - 1;
+            int white = ChessGame.TeamColor.WHITE.ordinal();
+            int black = ChessGame.TeamColor.BLACK.ordinal();
+            AHEAD[white][square] = rowsAboveWhite & COLUMNS[col];
+            AHEAD[black][square] = rowsBelowBlack & COLUMNS[col];
+            PASSED_SPAN[white][square] = rowsAboveWhite & (COLUMNS[col] | ADJACENT_COLUMNS[col]);
+            PASSED_SPAN[black][square] = rowsBelowBlack & (COLUMNS[col] | ADJACENT_COLUMNS[col]);
+        }
+    }
+
+    private final long[] pawnCache = new long[PAWN_CACHE_ENTRIES * 2];
+
+    /**
+     * @return the score of the position for the side to move
+     */
+    public int evaluate(ChessGame game) {
+        int score = whiteScore(game.getBoard());
+        return (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? score : -score;
+    }
+
+    /**
+     * @return the score of the position from white's point of view, as shown
+     * on an evaluation bar
+     */
+    public int whiteScore(ChessGame game) {
+        return whiteScore(game.getBoard());
+    }
+
+    private int whiteScore(ChessBoard board) {
+        int midgame = board.midgameScore();
+        int endgame = board.endgameScore();
+
+        long pawnTerms = pawnStructure(board);
+        midgame += (int) (pawnTerms >> 32);
+        endgame += (int) pawnTerms;
+
+        for (ChessGame.TeamColor color : COLORS) {
+            int sign = (color == ChessGame.TeamColor.WHITE) ? 1 : -1;
+            long pieceTerms = piecesTerms(board, color);
+            midgame += sign * (int) (pieceTerms >> 32);
+            endgame += sign * (int) pieceTerms;
+            midgame += sign * kingShelter(board, color);
+        }
+
+        int phase = Math.min(board.phase(), PieceSquareTables.MAX_PHASE);
+        return (midgame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+    }
+
+    /**
+     * Mobility of the given team's pieces and the danger they pose to the
+     * enemy king, as a {@link #pack packed} middlegame and endgame pair.
+     */
+    private static long piecesTerms(ChessBoard board, ChessGame.TeamColor color) {
+        ChessGame.TeamColor enemy = ChessGame.opponent(color);
+        long occupied = board.occupancy();
+        long area = ~board.occupancy(color) & ~pawnAttacks(board, enemy);
+        int enemyKing = board.kingSquare(enemy);
+        long kingZone = (enemyKing < 0) ? 0L : MoveTables.KING_ATTACKS[enemyKing] | (1L << enemyKing);
+
+        int midgame = 0;
+        int endgame = 0;
+        int attackers = 0;
+        int attackUnits = 0;
+        for (ChessPiece.PieceType type : MOBILE_TYPES) {
+            int t = type.ordinal();
+            for (long set = board.pieces(color, type); set != 0; set &= set - 1) {
+                long attacks = attacks(type, Long.numberOfTrailingZeros(set), occupied);
+                int mobility = Long.bitCount(attacks & area) - MOBILITY_BASELINE[t];
+                midgame += mobility * MOBILITY_MIDGAME[t];
+                endgame += mobility * MOBILITY_ENDGAME[t];
+                int zoneHits = Long.bitCount(attacks & kingZone);
+                if (zoneHits > 0) {
+                    attackers++;
+                    attackUnits += zoneHits * KING_ATTACK_WEIGHTS[t];
+                }
+            }
+        }
+        // A lone attacker is rarely dangerous; the danger grows with the square of the attack.
+        if (attackers >= 2) {
+            midgame += Math.min(attackUnits * attackUnits / 4, MAX_KING_DANGER);
+        }
+        return pack(midgame, endgame);
+    }
+
+    /**
+     * @return the middlegame bonus for pawns in front of a king on its first two rows
+     */
+    private static int kingShelter(ChessBoard board, ChessGame.TeamColor color) {
+        int king = board.kingSquare(color);
+        if (king < 0) {
+            return 0;
+        }
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        int homeRow = white ? ChessBoard.row(king) : 9 - ChessBoard.row(king);
+        if (homeRow > 2) {
+            return 0;
+        }
+        long pawns = board.pieces(color, ChessPiece.PieceType.PAWN);
+        long shield = COLUMNS[king & 7] | ADJACENT_COLUMNS[king & 7];
+        int step = white ? 8 : -8;
+        long nearRow = 0xFFL << ((king & ~7) + step);
+        long farRow = (homeRow == 1) ? 0xFFL << ((king & ~7) + 2 * step) : 0L;
+        return SHIELD_NEAR * Long.bitCount(pawns & shield & nearRow)
+                + SHIELD_FAR * Long.bitCount(pawns & shield & farRow);
+    }
+
+    /**
+     * @return white's pawn structure advantage as a {@link #pack packed}
+     * middlegame and endgame pair, from the cache when possible
+     */
+    private long pawnStructure(ChessBoard board) {
+        long key = board.pawnKey();
+        int index = (int) (key & (PAWN_CACHE_ENTRIES - 1)) * 2;
+        long data = pawnCache[index + 1];
+        if ((pawnCache[index] ^ data) == key) {
+            return data;
+        }
+        data = computePawnStructure(board);
+        pawnCache[index] = key ^ data;
+        pawnCache[index + 1] = data;
+        return data;
+    }
+
+    private static long computePawnStructure(ChessBoard board) {
+        int midgame = 0;
+        int endgame = 0;
+        for (ChessGame.TeamColor color : COLORS) {
+            int sign = (color == ChessGame.TeamColor.WHITE) ? 1 : -1;
+            int side = color.ordinal();
+            long own = board.pieces(color, ChessPiece.PieceType.PAWN);
+            long enemy = board.pieces(ChessGame.opponent(color), ChessPiece.PieceType.PAWN);
+            for (long set = own; set != 0; set &= set - 1) {
+                int square = Long.numberOfTrailingZeros(set);
+                boolean doubled = (own & AHEAD[side][square]) != 0;
+                if (doubled) {
+                    midgame -= sign * DOUBLED_MIDGAME;
+                    endgame -= sign * DOUBLED_ENDGAME;
+                }
+                if ((own & ADJACENT_COLUMNS[square & 7]) == 0) {
+                    midgame -= sign * ISOLATED_MIDGAME;
+                    endgame -= sign * ISOLATED_ENDGAME;
+                }
+                if (!doubled && (enemy & PASSED_SPAN[side][square]) == 0) {
+                    int row = ChessBoard.row(square);
+                    int homeRow = (color == ChessGame.TeamColor.WHITE) ? row : 9 - row;
+                    midgame += sign * PASSED_MIDGAME[homeRow];
+                    endgame += sign * PASSED_ENDGAME[homeRow];
+                }
+            }
+        }
+        return pack(midgame, endgame);
+    }
+
+    private static long pawnAttacks(ChessBoard board, ChessGame.TeamColor color) {
+        long pawns = board.pieces(color, ChessPiece.PieceType.PAWN);
+        if (color == ChessGame.TeamColor.WHITE) {
+            return ((pawns << 9) & ~COLUMN_1) | ((pawns << 7) & ~COLUMN_8);
+        }
+        return ((pawns >>> 7) & ~COLUMN_1) | ((pawns >>> 9) & ~COLUMN_8);
+    }
+
+    private static long attacks(ChessPiece.PieceType type, int square, long occupied) {
+        return switch (type) {
+            case KNIGHT -> MoveTables.KNIGHT_ATTACKS[square];
+            case BISHOP -> slidingAttacks(MoveTables.DIAGONAL_DIRECTIONS, square, occupied);
+            case ROOK -> slidingAttacks(MoveTables.STRAIGHT_DIRECTIONS, square, occupied);
+            case QUEEN -> slidingAttacks(MoveTables.ALL_DIRECTIONS, square, occupied);
+            default -> 0L;
+        };
+    }
+
+    private static long slidingAttacks(int[] directions, int square, long occupied) {
+        long attacks = 0L;
+        for (int direction : directions) {
+            for (int target : MoveTables.RAYS[direction][square]) {
+                long bit = 1L << target;
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Packs a middlegame and an endgame score into one long, the middlegame
+     * score in the high half.
+     */
+    private static long pack(int midgame, int endgame) {
+        return ((long) midgame << 32) | (endgame & 0xFFFF_FFFFL);
+    }
+}
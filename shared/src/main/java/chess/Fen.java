@@ -0,0 +1,250 @@
+package chess;
+
+/**
+ * Reads and writes Forsyth-Edwards Notation, the one-line text form of a
+ * position: piece placement from row 8 down, side to move, castling rights,
+ * en passant square, halfmove clock and fullmove number, separated by spaces.
+ * <p>
+ * The parser walks the string once by index, so it allocates nothing but the
+ * game it returns and needs no regular expressions.
+ */
+final class Fen {
+
+    // Indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN.
+    private static final String PIECE_LETTERS = "kqbnrp";
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    // Under the 75-move rule a game is drawn once this many plies pass
+    // without a capture or pawn move, so no real position has a larger clock.
+    static final int MAX_HALFMOVE_CLOCK = 150;
+
+    private Fen() {
+    }
+
+    /**
+     * Everything after the side to move may be left off, in which case there
+     * are no castling rights or en passant square, the halfmove clock is 0
+     * and the fullmove number is 1.
+     *
+     * @throws IllegalArgumentException if the text is not a valid FEN, or its
+     * halfmove clock is over {@link #MAX_HALFMOVE_CLOCK}
+     */
+    static ChessGame parse(String fen) {
+        Parser parser = new Parser(fen);
+        ChessBoard board = parser.placement();
+        ChessGame.TeamColor turn = parser.turn();
+        int castlingRights = parser.hasField() ? parser.castlingRights() : 0;
+        int enPassant = parser.hasField() ? parser.enPassantSquare() : ChessGame.NO_EN_PASSANT;
+        int halfmoveClock = parser.hasField() ? parser.halfmoveClock() : 0;
+        int fullmoveNumber = parser.hasField() ? parser.number() : 1;
+        if (parser.hasField()) {
+            throw parser.error("unexpected text after the fullmove number");
+        }
+        if (board.kingSquare(ChessGame.TeamColor.WHITE) < 0 || board.kingSquare(ChessGame.TeamColor.BLACK) < 0) {
+            throw new IllegalArgumentException("Invalid FEN, both sides need a king: " + fen);
+        }
+
+        ChessGame game = new ChessGame();
+        game.setPosition(board, turn, castlingRights, enPassant, halfmoveClock, Math.max(1, fullmoveNumber));
+        return game;
+    }
+
+    static String format(ChessGame game) {
+        StringBuilder fen = new StringBuilder(90);
+        ChessBoard board = game.getBoard();
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.pieceAt(ChessBoard.square(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char letter = PIECE_LETTERS.charAt(piece.getPieceType().ordinal());
+                fen.append(piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+
+        fen.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+
+        int rights = game.castlingRights();
+        if (rights == 0) {
+            fen.append('-');
+        } else {
+            appendIf(fen, rights, ChessGame.WHITE_KINGSIDE, 'K');
+            appendIf(fen, rights, ChessGame.WHITE_QUEENSIDE, 'Q');
+            appendIf(fen, rights, ChessGame.BLACK_KINGSIDE, 'k');
+            appendIf(fen, rights, ChessGame.BLACK_QUEENSIDE, 'q');
+        }
+
+        int enPassant = game.enPassantSquare();
+        if (enPassant == ChessGame.NO_EN_PASSANT) {
+            fen.append(" -");
+        } else {
+            fen.append(' ')
+                    .append((char) ('a' + ChessBoard.column(enPassant) - 1))
+                    .append((char) ('0' + ChessBoard.row(enPassant)));
+        }
+
+        return fen.append(' ').append(game.halfmoveClock())
+                .append(' ').append(game.fullmoveNumber())
+                .toString();
+    }
+
+    private static void appendIf(StringBuilder fen, int rights, int right, char letter) {
+        if ((rights & right) != 0) {
+            fen.append(letter);
+        }
+    }
+
+    private static final class Parser {
+
+        private final String fen;
+        private int index;
+
+        Parser(String fen) {
+            this.fen = fen;
+            skipSpaces();
+        }
+
+        boolean hasField() {
+            skipSpaces();
+            return index < fen.length();
+        }
+
+        ChessBoard placement() {
+            ChessBoard board = new ChessBoard();
+            int row = 8;
+            int col = 1;
+            for (; index < fen.length() && fen.charAt(index) != ' '; index++) {
+                char c = fen.charAt(index);
+                if (c == '/') {
+                    if (col != 9 || row == 1) {
+                        throw error("row " + row + " does not have 8 squares");
+                    }
+                    row--;
+                    col = 1;
+                } else if (c >= '1' && c <= '8') {
+                    col += c - '0';
+                } else {
+                    int type = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+                    if (type < 0 || col > 8) {
+                        throw error("unexpected '" + c + "' in the placement");
+                    }
+                    ChessGame.TeamColor color = Character.isUpperCase(c)
+                            ? ChessGame.TeamColor.WHITE
+                            : ChessGame.TeamColor.BLACK;
+                    board.putPiece(ChessBoard.square(row, col),
+                            ChessBoard.kind(color, TYPES[type]));
+                    col++;
+                }
+                if (col > 9) {
+                    throw error("row " + row + " has more than 8 squares");
+                }
+            }
+            if (row != 1 || col != 9) {
+                throw error("the placement does not have 8 rows of 8 squares");
+            }
+            return board;
+        }
+
+        ChessGame.TeamColor turn() {
+            if (!hasField()) {
+                throw error("missing the side to move");
+            }
+            char c = fen.charAt(index++);
+            if (c != 'w' && c != 'b') {
+                throw error("the side to move must be 'w' or 'b'");
+            }
+            endField();
+            return (c == 'w') ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        }
+
+        int castlingRights() {
+            if (fen.charAt(index) == '-') {
+                index++;
+                endField();
+                return 0;
+            }
+            int rights = 0;
+            for (; index < fen.length() && fen.charAt(index) != ' '; index++) {
+                rights |= switch (fen.charAt(index)) {
+                    case 'K' -> ChessGame.WHITE_KINGSIDE;
+                    case 'Q' -> ChessGame.WHITE_QUEENSIDE;
+                    case 'k' -> ChessGame.BLACK_KINGSIDE;
+                    case 'q' -> ChessGame.BLACK_QUEENSIDE;
+                    default -> throw error("unexpected '" + fen.charAt(index) + "' in the castling rights");
+                };
+            }
+            return rights;
+        }
+
+        int enPassantSquare() {
+            if (fen.charAt(index) == '-') {
+                index++;
+                endField();
+                return ChessGame.NO_EN_PASSANT;
+            }
+            if (index + 2 > fen.length()) {
+                throw error("incomplete en passant square");
+            }
+            char column = fen.charAt(index);
+            char row = fen.charAt(index + 1);
+            if (column < 'a' || column > 'h' || (row != '3' && row != '6')) {
+                throw error("the en passant square must be on row 3 or 6");
+            }
+            index += 2;
+            endField();
+            return ChessBoard.square(row - '0', column - 'a' + 1);
+        }
+
+        int halfmoveClock() {
+            int clock = number();
+            if (clock > MAX_HALFMOVE_CLOCK) {
+                throw error("the halfmove clock can't be over " + MAX_HALFMOVE_CLOCK);
+            }
+            return clock;
+        }
+
+        int number() {
+            int value = 0;
+            int start = index;
+            for (; index < fen.length() && fen.charAt(index) != ' '; index++) {
+                char c = fen.charAt(index);
+                if (c < '0' || c > '9' || value > 100_000) {
+                    throw error("expected a number");
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (index == start) {
+                throw error("expected a number");
+            }
+            return value;
+        }
+
+        private void endField() {
+            if (index < fen.length() && fen.charAt(index) != ' ') {
+                throw error("unexpected '" + fen.charAt(index) + "'");
+            }
+        }
+
+        private void skipSpaces() {
+            while (index < fen.length() && fen.charAt(index) == ' ') {
+                index++;
+            }
+        }
+
+        IllegalArgumentException error(String problem) {
+            return new IllegalArgumentException("Invalid FEN at character " + (index + 1) + ", " + problem + ": " + fen);
+        }
+    }
+}
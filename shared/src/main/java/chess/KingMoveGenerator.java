@@ -1,46 +1,55 @@
 package chess;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
-
 public class KingMoveGenerator implements MoveGenerator{
     @Override
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> moves = new HashSet<>();
-
-        int[][] directions = {{+1, 0}, {-1, 0}, {0, +1}, {0, -1}, {+1, +1}, {-1, +1}, {+1, -1}, {-1, -1}};
-
-        for (int[] direction: directions) {
-            int moveRow = direction[0];
-            int moveColumn = direction[1];
-
-
-            int currentRow = myPosition.getRow();
-            int currentColumn = myPosition.getColumn();
-
-            int newRow = currentRow + moveRow;
-            int newColumn = currentColumn + moveColumn;
-
-            if (newRow < 1 || newRow > 8|| newColumn < 1 || newColumn > 8) {
-                continue;
-            }
-
-            ChessPosition newPosition = new ChessPosition(newRow, newColumn);
-            ChessPiece possiblePiece = board.getPiece(newPosition);
-            ChessPiece king = board.getPiece(myPosition);
+    public int pieceMoves(ChessBoard board, int from, MoveList moves) {
+        int start = moves.size();
+        ChessGame.TeamColor color = board.pieceAt(from).getTeamColor();
+        long targets = MoveTables.KING_ATTACKS[from] & ~board.occupancy(color);
+        long occupied = board.occupancy();
+
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            int flags = ((occupied & (1L << to)) != 0) ? PackedMove.FLAG_CAPTURE : 0;
+            moves.add(PackedMove.of(from, to) | flags);
+        }
+        return moves.size() - start;
+    }
 
-            if (possiblePiece == null) {
-                ChessMove move = new ChessMove(myPosition, newPosition, null);
-                moves.add(move);
-            } else if (possiblePiece.getTeamColor() != king.getTeamColor()) {
-                ChessMove move = new ChessMove(myPosition, newPosition, null);
-                moves.add(move);
-            } else {
-                continue;
-            }
+    /**
+     * Adds the castling moves allowed by the rights whose path is clear and
+     * not attacked. Landing in check is left to the legality filter, like any
+     * other king move.
+     *
+     * @param rights the game's castling rights, see {@link ChessGame#castlingRights()}
+     */
+    static void castlingMoves(ChessBoard board, int from, int rights, MoveList moves) {
+        ChessGame.TeamColor color = board.pieceAt(from).getTeamColor();
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        if (from != (white ? ChessBoard.square(1, 5) : ChessBoard.square(8, 5))) {
+            return;
+        }
+        int kingside = white ? ChessGame.WHITE_KINGSIDE : ChessGame.BLACK_KINGSIDE;
+        int queenside = white ? ChessGame.WHITE_QUEENSIDE : ChessGame.BLACK_QUEENSIDE;
+        if ((rights & (kingside | queenside)) == 0) {
+            return;
+        }
+        ChessGame.TeamColor enemy = ChessGame.opponent(color);
+        if (board.isSquareAttacked(from, enemy)) {
+            return;
+        }
+        long rooks = board.pieces(color, ChessPiece.PieceType.ROOK);
+        long occupied = board.occupancy();
 
+        if ((rights & kingside) != 0 && (rooks & (1L << (from + 3))) != 0
+                && (occupied & ((1L << (from + 1)) | (1L << (from + 2)))) == 0
+                && !board.isSquareAttacked(from + 1, enemy)) {
+            moves.add(PackedMove.of(from, from + 2) | PackedMove.FLAG_CASTLE);
+        }
+        if ((rights & queenside) != 0 && (rooks & (1L << (from - 4))) != 0
+                && (occupied & ((1L << (from - 1)) | (1L << (from - 2)) | (1L << (from - 3)))) == 0
+                && !board.isSquareAttacked(from - 1, enemy)) {
+            moves.add(PackedMove.of(from, from - 2) | PackedMove.FLAG_CASTLE);
         }
-        return moves;
     }
 }
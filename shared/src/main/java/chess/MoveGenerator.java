@@ -3,5 +3,21 @@ package chess;
 import java.util.Collection;
 
 public interface MoveGenerator {
-    Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition);
+
+    /**
+     * Writes the pseudo-legal moves of the piece on a square into a buffer as
+     * {@link PackedMove} ints, without allocating.
+     *
+     * @param board the board the piece is on
+     * @param from  the square of the piece to move
+     * @param moves the buffer to append moves to
+     * @return the number of moves appended
+     */
+    int pieceMoves(ChessBoard board, int from, MoveList moves);
+
+    default Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
+        MoveList moves = new MoveList();
+        pieceMoves(board, ChessBoard.square(myPosition), moves);
+        return moves.toChessMoves(0);
+    }
 }
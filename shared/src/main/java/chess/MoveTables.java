@@ -0,0 +1,95 @@
+package chess;
+
+/**
+ * Per-square move tables built once when the class is loaded, so move
+ * generation and attack detection never recompute offsets or bounds checks.
+ * Squares are numbered as in {@link ChessBoard}.
+ */
+final class MoveTables {
+
+    static final int NORTH = 0;
+    static final int SOUTH = 1;
+    static final int EAST = 2;
+    static final int WEST = 3;
+    static final int NORTH_EAST = 4;
+    static final int NORTH_WEST = 5;
+    static final int SOUTH_EAST = 6;
+    static final int SOUTH_WEST = 7;
+
+    static final int[] STRAIGHT_DIRECTIONS = {NORTH, SOUTH, EAST, WEST};
+    static final int[] DIAGONAL_DIRECTIONS = {NORTH_EAST, NORTH_WEST, SOUTH_EAST, SOUTH_WEST};
+    static final int[] ALL_DIRECTIONS = {NORTH, SOUTH, EAST, WEST, NORTH_EAST, NORTH_WEST, SOUTH_EAST, SOUTH_WEST};
+
+    private static final int[][] DIRECTION_OFFSETS = {
+            {+1, 0}, {-1, 0}, {0, +1}, {0, -1}, {+1, +1}, {+1, -1}, {-1, +1}, {-1, -1}
+    };
+    private static final int[][] KNIGHT_OFFSETS = {
+            {+2, +1}, {+2, -1}, {-2, +1}, {-2, -1}, {+1, +2}, {+1, -2}, {-1, +2}, {-1, -2}
+    };
+
+    /**
+     * Squares a knight on the indexed square jumps to.
+     */
+    static final long[] KNIGHT_ATTACKS = new long[64];
+
+    /**
+     * Squares a king on the indexed square steps to.
+     */
+    static final long[] KING_ATTACKS = new long[64];
+
+    /**
+     * Squares a pawn of the indexed team ({@link ChessGame.TeamColor#ordinal()})
+     * on the indexed square captures on.
+     */
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    /**
+     * Squares along each direction from each square, nearest first.
+     */
+    static final int[][][] RAYS = new int[DIRECTION_OFFSETS.length][64][];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int row = ChessBoard.row(square);
+            int col = ChessBoard.column(square);
+
+            for (int[] offset : KNIGHT_OFFSETS) {
+                KNIGHT_ATTACKS[square] |= bit(row + offset[0], col + offset[1]);
+            }
+            for (int[] offset : DIRECTION_OFFSETS) {
+                KING_ATTACKS[square] |= bit(row + offset[0], col + offset[1]);
+            }
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = bit(row + 1, col - 1) | bit(row + 1, col + 1);
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = bit(row - 1, col - 1) | bit(row - 1, col + 1);
+
+            for (int direction = 0; direction < DIRECTION_OFFSETS.length; direction++) {
+                RAYS[direction][square] = ray(row, col, DIRECTION_OFFSETS[direction]);
+            }
+        }
+    }
+
+    private MoveTables() {
+    }
+
+    private static long bit(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return 0L;
+        }
+        return 1L << ChessBoard.square(row, col);
+    }
+
+    private static int[] ray(int row, int col, int[] offset) {
+        int length = 0;
+        int[] squares = new int[7];
+        int currentRow = row + offset[0];
+        int currentCol = col + offset[1];
+        while (currentRow >= 1 && currentRow <= 8 && currentCol >= 1 && currentCol <= 8) {
+            squares[length++] = ChessBoard.square(currentRow, currentCol);
+            currentRow += offset[0];
+            currentCol += offset[1];
+        }
+        int[] trimmed = new int[length];
+        System.arraycopy(squares, 0, trimmed, 0, length);
+        return trimmed;
+    }
+}
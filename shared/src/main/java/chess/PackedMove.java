@@ -0,0 +1,77 @@
+package chess;
+
+/**
+ * Encodes a chess move in a single int so that move stacks and move lists
+ * can be kept in primitive arrays.
+ * <p>
+ * Bits 0-5 hold the start square, bits 6-11 the end square (see
+ * {@link ChessBoard} for square numbering) and bits 12-14 the promotion
+ * piece type's ordinal plus one, or zero when the move is not a promotion.
+ * The bits above that are {@code FLAG_*} hints set by move generation; they
+ * are not part of a move's identity, see {@link #sameMove(int, int)}.
+ */
+public final class PackedMove {
+
+    public static final int NONE = 0;
+
+    public static final int FLAG_CAPTURE = 1 << 15;
+    public static final int FLAG_DOUBLE_PUSH = 1 << 16;
+    public static final int FLAG_CASTLE = 1 << 17;
+    public static final int FLAG_EN_PASSANT = 1 << 18;
+
+    private static final int IDENTITY_MASK = (1 << 15) - 1;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, ChessPiece.PieceType promotion) {
+        int promotionBits = (promotion == null) ? 0 : promotion.ordinal() + 1;
+        return from | (to << 6) | (promotionBits << 12);
+    }
+
+    public static int of(ChessMove move) {
+        return of(ChessBoard.square(move.getStartPosition()), ChessBoard.square(move.getEndPosition()),
+                move.getPromotionPiece());
+    }
+
+    public static int of(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        return of(from, to, promotion) | flags;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return the promotion piece type, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotionBits = (move >>> 12) & 0x7;
+        return (promotionBits == 0) ? null : TYPES[promotionBits - 1];
+    }
+
+    public static boolean hasFlag(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * @return True if both encode the same start, end and promotion, ignoring flags
+     */
+    public static boolean sameMove(int move, int other) {
+        return ((move ^ other) & IDENTITY_MASK) == 0;
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(ChessBoard.position(from(move)), ChessBoard.position(to(move)), promotion(move));
+    }
+}
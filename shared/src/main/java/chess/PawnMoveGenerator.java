@@ -1,71 +1,63 @@
 package chess;
 
-import java.util.Collection;
-import java.util.HashSet;
-
 public class PawnMoveGenerator implements MoveGenerator{
-    @Override
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> moves = new HashSet<>();
-        ChessPiece pawn = board.getPiece(myPosition);
-
-        int direction = (pawn.getTeamColor() == ChessGame.TeamColor.WHITE) ? +1 : -1;
-        int[][] capture = (pawn.getTeamColor() == ChessGame.TeamColor.WHITE) ? new int[][]{{+1, +1}, {+1, -1}} : new int[][]{{-1, +1}, {-1, -1}};
-        int startRow = (pawn.getTeamColor() == ChessGame.TeamColor.WHITE) ? 2 : 7;
-        int lastRow = (pawn.getTeamColor() == ChessGame.TeamColor.WHITE) ? 8 : 1;
-
-        ChessPiece.PieceType[] promotionTypes = {
-                ChessPiece.PieceType.ROOK,
-                ChessPiece.PieceType.QUEEN,
-                ChessPiece.PieceType.KNIGHT,
-                ChessPiece.PieceType.BISHOP
-        };
-
-        int currentRow = myPosition.getRow();
-        int currentCol = myPosition.getColumn();
 
-        int goForward1 = currentRow + direction;
-        int goForward2 = currentRow + direction*2;
+    private static final ChessPiece.PieceType[] PROMOTION_TYPES = {
+            ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.BISHOP
+    };
 
-        ChessPosition newPosition1 = new ChessPosition(goForward1, currentCol);
-        ChessPosition newPosition2 = new ChessPosition(goForward2, currentCol);
-
-        if (board.getPiece(newPosition1) == null) {
-            if (goForward1 == lastRow) {
-                for (ChessPiece.PieceType promoType : promotionTypes) {
-                    moves.add(new ChessMove(myPosition, newPosition1, promoType));
-                }
-            } else {
-                moves.add(new ChessMove(myPosition, newPosition1, null));
-            }
-
-            if (newPosition2.getRow() >= 1 && newPosition2.getRow() <= 8 && board.getPiece(newPosition2) == null && currentRow == startRow) {
-                moves.add(new ChessMove(myPosition, newPosition2, null));
+    @Override
+    public int pieceMoves(ChessBoard board, int from, MoveList moves) {
+        int start = moves.size();
+        ChessGame.TeamColor color = board.pieceAt(from).getTeamColor();
+
+        boolean white = (color == ChessGame.TeamColor.WHITE);
+        int step = white ? 8 : -8;
+        int startRow = white ? 2 : 7;
+        int lastRow = white ? 8 : 1;
+        long occupied = board.occupancy();
+
+        int forward1 = from + step;
+        if ((occupied & (1L << forward1)) == 0) {
+            addMoves(moves, from, forward1, ChessBoard.row(forward1) == lastRow, 0);
+
+            int forward2 = forward1 + step;
+            if (ChessBoard.row(from) == startRow && (occupied & (1L << forward2)) == 0) {
+                moves.add(PackedMove.of(from, forward2) | PackedMove.FLAG_DOUBLE_PUSH);
             }
-
         }
 
-        for (int[] cap : capture) {
-            int moveRow = currentRow + cap[0];
-            int moveCol = currentCol + cap[1];
-
-            if (moveRow < 1 || moveRow > 8 || moveCol < 1 || moveCol > 8) { continue; }
+        ChessGame.TeamColor enemy = white ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long captures = MoveTables.PAWN_ATTACKS[color.ordinal()][from] & board.occupancy(enemy);
+        for (; captures != 0; captures &= captures - 1) {
+            int to = Long.numberOfTrailingZeros(captures);
+            addMoves(moves, from, to, ChessBoard.row(to) == lastRow, PackedMove.FLAG_CAPTURE);
+        }
 
-            ChessPosition capPosition = new ChessPosition(moveRow, moveCol);
-            ChessPiece target = board.getPiece(capPosition);
+        return moves.size() - start;
+    }
 
-            if (target == null || target.getTeamColor() == pawn.getTeamColor()) { continue; }
+    /**
+     * Adds the en passant capture onto the square the enemy pawn skipped, if
+     * this pawn attacks it.
+     */
+    static void enPassantMoves(ChessBoard board, int from, int enPassantSquare, MoveList moves) {
+        ChessGame.TeamColor color = board.pieceAt(from).getTeamColor();
+        if ((MoveTables.PAWN_ATTACKS[color.ordinal()][from] & (1L << enPassantSquare)) != 0) {
+            moves.add(PackedMove.of(from, enPassantSquare) | PackedMove.FLAG_CAPTURE | PackedMove.FLAG_EN_PASSANT);
+        }
+    }
 
-            if (moveRow == lastRow) {
-                for (ChessPiece.PieceType promoType : promotionTypes) {
-                    moves.add(new ChessMove(myPosition, capPosition, promoType));
-                }
-            } else {
-                moves.add(new ChessMove(myPosition, capPosition, null));
+    private static void addMoves(MoveList moves, int from, int to, boolean promotes, int flags) {
+        if (promotes) {
+            for (ChessPiece.PieceType promoType : PROMOTION_TYPES) {
+                moves.add(PackedMove.of(from, to, promoType, flags));
             }
+        } else {
+            moves.add(PackedMove.of(from, to) | flags);
         }
-
-
-        return moves;
     }
 }
@@ -0,0 +1,156 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft (performance test) driver: counts the leaf nodes of the legal move
+ * tree to a fixed depth and compares them with published totals. It doubles
+ * as a correctness check for move generation and a throughput yardstick.
+ * <p>
+ * Run with {@code java chess.Perft [maxDepth] [--parallel]}.
+ */
+public final class Perft {
+
+    /**
+     * A published test position and its known node counts, where
+     * {@code expected[d - 1]} is the perft total at depth {@code d}.
+     */
+    public record TestPosition(String name, String fen, long... expected) {
+
+        public ChessGame game() {
+            return ChessGame.fromFen(fen);
+        }
+
+        public int maxDepth() {
+            return expected.length;
+        }
+    }
+
+    public static final List<TestPosition> TEST_POSITIONS = List.of(
+            new TestPosition("start", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                    20L, 400L, 8_902L, 197_281L),
+            new TestPosition("position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14L, 191L, 2_812L, 43_238L),
+            new TestPosition("position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    46L, 2_079L, 89_890L),
+            new TestPosition("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48L, 2_039L, 97_862L),
+            new TestPosition("position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    6L, 264L, 9_467L),
+            new TestPosition("position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    44L, 1_486L, 62_379L)
+    );
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the leaf nodes of the legal move tree below the game's position.
+     * The game is left in the position it started in.
+     *
+     * @param game  the position to count from
+     * @param depth the number of plies to search
+     * @return the number of positions reachable in exactly that many plies
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        return perft(game, depth, newMoveLists(depth));
+    }
+
+    /**
+     * Same as {@link #perft(ChessGame, int)}, but searches each root move as a
+     * separate fork/join task on its own copy of the game.
+     */
+    public static long parallelPerft(ChessGame game, int depth, ForkJoinPool pool) {
+        if (depth <= 1) {
+            return perft(game, depth);
+        }
+        MoveList rootMoves = new MoveList();
+        game.legalMoves(rootMoves);
+
+        List<RecursiveTask<Long>> tasks = new ArrayList<>(rootMoves.size());
+        for (int i = 0; i < rootMoves.size(); i++) {
+            int rootMove = rootMoves.get(i);
+            tasks.add(new RecursiveTask<>() {
+                @Override
+                protected Long compute() {
+                    ChessGame copy = new ChessGame(game);
+                    copy.makeMove(rootMove);
+                    return perft(copy, depth - 1);
+                }
+            });
+        }
+
+        return pool.submit(() -> {
+            long nodes = 0;
+            for (RecursiveTask<Long> task : RecursiveTask.invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }).join();
+    }
+
+    private static long perft(ChessGame game, int depth, MoveList[] moveLists) {
+        MoveList moves = moveLists[depth - 1];
+        moves.clear();
+        int count = game.legalMoves(moves);
+        if (depth == 1) {
+            return count;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            game.makeMove(moves.get(i));
+            nodes += perft(game, depth - 1, moveLists);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    private static MoveList[] newMoveLists(int depth) {
+        MoveList[] moveLists = new MoveList[depth];
+        for (int i = 0; i < depth; i++) {
+            moveLists[i] = new MoveList();
+        }
+        return moveLists;
+    }
+
+    public static void main(String[] args) {
+        int maxDepth = Integer.MAX_VALUE;
+        boolean parallel = false;
+        for (String arg : args) {
+            if (arg.equals("--parallel")) {
+                parallel = true;
+            } else {
+                maxDepth = Integer.parseInt(arg);
+            }
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        boolean allPassed = true;
+        for (TestPosition position : TEST_POSITIONS) {
+            for (int depth = 1; depth <= Math.min(maxDepth, position.maxDepth()); depth++) {
+                ChessGame game = position.game();
+                long start = System.nanoTime();
+                long nodes = parallel ? parallelPerft(game, depth, pool) : perft(game, depth);
+                long elapsed = Math.max(1, System.nanoTime() - start);
+
+                long expected = position.expected()[depth - 1];
+                boolean passed = nodes == expected;
+                allPassed &= passed;
+                System.out.printf("%-12s depth %d: %,14d nodes (expected %,14d) %8.1f ms %,14d nodes/s %s%n",
+                        position.name(), depth, nodes, expected, elapsed / 1e6,
+                        nodes * 1_000_000_000L / elapsed, passed ? "OK" : "FAIL");
+            }
+        }
+
+        if (!allPassed) {
+            System.exit(1);
+        }
+    }
+}
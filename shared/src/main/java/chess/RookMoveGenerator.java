@@ -4,8 +4,7 @@ package chess;
 public class RookMoveGenerator extends SlidingPieceMoveGenerator {
 
     @Override
-    public int[][] getDirections() {
-        return new int[][] {{+1, 0}, {-1, 0}, {0, +1}, {0, -1}};
-
+    public int[] getDirections() {
+        return MoveTables.STRAIGHT_DIRECTIONS;
     }
 }
@@ -1,54 +1,33 @@
 package chess;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
-
 public abstract class SlidingPieceMoveGenerator implements MoveGenerator{
 
-    public abstract int[][] getDirections();
+    /**
+     * @return the {@link MoveTables} ray directions this piece slides along
+     */
+    public abstract int[] getDirections();
 
 
     @Override
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> moves = new HashSet<>();
-
-        int[][] directions = getDirections();
-
-        for (int[] direction: directions) {
-            int moveRow = direction[0];
-            int moveColumn = direction[1];
-
-            int currentRow = myPosition.getRow();
-            int currentColumn = myPosition.getColumn();
-
-            while (true) {
-                currentRow += moveRow;
-                currentColumn += moveColumn;
-
-                if (currentRow < 1 || currentRow > 8 || currentColumn < 1 || currentColumn > 8) {
+    public int pieceMoves(ChessBoard board, int from, MoveList moves) {
+        int start = moves.size();
+        long ownPieces = board.occupancy(board.pieceAt(from).getTeamColor());
+        long occupied = board.occupancy();
+
+        for (int direction : getDirections()) {
+            for (int to : MoveTables.RAYS[direction][from]) {
+                long target = 1L << to;
+                if ((ownPieces & target) != 0) {
                     break;
                 }
 
-                ChessPosition newPosition = new ChessPosition(currentRow, currentColumn);
-                ChessPiece possiblePiece = board.getPiece(newPosition);
-                ChessPiece rook = board.getPiece(myPosition);
-
-                if (possiblePiece == null) {
-                    ChessMove move = new ChessMove(myPosition, newPosition, null);
-                    moves.add(move);
-                    continue;
-                } else if (possiblePiece.getTeamColor() != rook.getTeamColor()) {
-                    ChessMove move = new ChessMove(myPosition, newPosition, null);
-                    moves.add(move);
-                    break;
-
-                } else {
+                if ((occupied & target) != 0) {
+                    moves.add(PackedMove.of(from, to) | PackedMove.FLAG_CAPTURE);
                     break;
                 }
-
+                moves.add(PackedMove.of(from, to));
             }
         }
-        return moves;
+        return moves.size() - start;
     }
 }
@@ -0,0 +1,155 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Perfect-play results for king and queen, rook or pawn against a bare king,
+ * memory-mapped from files written by {@link TablebaseGenerator}. Two bare
+ * kings, or a lone bishop or knight against a bare king, are reported as
+ * draws without a table. The tables assume no castling rights, so positions
+ * that still have one are not covered.
+ * <p>
+ * Each table holds one byte per position, indexed by whether the stronger
+ * side is to move and the squares of the stronger king, the bare king and
+ * the piece, with the stronger side as white. Positions with black as the
+ * stronger side are looked up mirrored top to bottom. A byte is the
+ * {@link #probeValue} encoding below.
+ */
+public final class Tablebase {
+
+    /**
+     * {@link #probeValue} for a position the tables do not cover.
+     */
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+    public static final int DRAW = 0;
+
+    static final String[] FILE_NAMES = {"kqk.tb", "krk.tb", "kpk.tb"};
+    static final int TABLE_SIZE = 2 * 64 * 64 * 64;
+    static final int STRONG = 0;
+    static final int WEAK = 1;
+
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    /**
+     * @param outcome the result for the side to move with best play
+     * @param plies   the number of plies to checkmate, or 0 for a draw
+     */
+    public record Result(Outcome outcome, int plies) {
+    }
+
+    private final ByteBuffer queen;
+    private final ByteBuffer rook;
+    private final ByteBuffer pawn;
+
+    private Tablebase(ByteBuffer queen, ByteBuffer rook, ByteBuffer pawn) {
+        this.queen = queen;
+        this.rook = rook;
+        this.pawn = pawn;
+    }
+
+    public static Tablebase open(Path directory) throws IOException {
+        ByteBuffer[] tables = new ByteBuffer[FILE_NAMES.length];
+        for (int i = 0; i < FILE_NAMES.length; i++) {
+            Path path = directory.resolve(FILE_NAMES[i]);
+            // The mapping stays valid after the channel is closed.
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() != TABLE_SIZE) {
+                    throw new IOException("Not a tablebase file: " + path);
+                }
+                tables[i] = channel.map(FileChannel.MapMode.READ_ONLY, 0, TABLE_SIZE);
+            }
+        }
+        return new Tablebase(tables[0], tables[1], tables[2]);
+    }
+
+    /**
+     * @return the result for the side to move, or null if the position is not covered
+     */
+    public Result probe(ChessGame game) {
+        int value = probeValue(game);
+        if (value == NOT_FOUND) {
+            return null;
+        } else if (value > 0) {
+            return new Result(Outcome.WIN, value);
+        } else if (value < 0) {
+            return new Result(Outcome.LOSS, -value - 1);
+        }
+        return new Result(Outcome.DRAW, 0);
+    }
+
+    /**
+     * Looks a position up without allocating.
+     *
+     * @return {@link #NOT_FOUND}; {@link #DRAW}; {@code n > 0} if the side to
+     * move mates in {@code n} plies; or {@code -(n + 1)} if it is mated in
+     * {@code n} plies
+     */
+    public int probeValue(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        long occupied = board.occupancy();
+        int count = Long.bitCount(occupied);
+        if (count == 2) {
+            return DRAW;
+        } else if (count != 3 || game.castlingRights() != 0) {
+            return NOT_FOUND;
+        }
+
+        for (ChessGame.TeamColor strong : ChessGame.TeamColor.values()) {
+            long others = board.occupancy(strong) & ~board.pieces(ChessBoard.kind(strong, ChessPiece.PieceType.KING));
+            if (others == 0) {
+                continue;
+            }
+            int square = Long.numberOfTrailingZeros(others);
+            ByteBuffer table = switch (board.pieceAt(square).getPieceType()) {
+                case QUEEN -> queen;
+                case ROOK -> rook;
+                case PAWN -> pawn;
+                case BISHOP, KNIGHT -> null;
+                case KING -> throw new IllegalStateException("Extra king on the board");
+            };
+            if (table == null) {
+                return DRAW;
+            }
+            ChessGame.TeamColor weak = (strong == ChessGame.TeamColor.WHITE)
+                    ? ChessGame.TeamColor.BLACK
+                    : ChessGame.TeamColor.WHITE;
+            int mirror = (strong == ChessGame.TeamColor.WHITE) ? 0 : 56;
+            int mover = (game.getTeamTurn() == strong) ? STRONG : WEAK;
+            return table.get(index(mover, board.kingSquare(strong) ^ mirror, board.kingSquare(weak) ^ mirror,
+                    square ^ mirror));
+        }
+        return NOT_FOUND;
+    }
+
+    static int index(int mover, int strongKing, int weakKing, int piece) {
+        return (mover << 18) | (strongKing << 12) | (weakKing << 6) | piece;
+    }
+
+    static int mover(int index) {
+        return index >>> 18;
+    }
+
+    static int strongKing(int index) {
+        return (index >>> 12) & 0x3F;
+    }
+
+    static int weakKing(int index) {
+        return (index >>> 6) & 0x3F;
+    }
+
+    static int piece(int index) {
+        return index & 0x3F;
+    }
+
+    static int loss(int plies) {
+        return -(plies + 1);
+    }
+}
@@ -0,0 +1,242 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Builds the {@link Tablebase} files by retrograde analysis: every position
+ * of the ending is enumerated, mates are marked, and then each pass marks
+ * the positions one ply further from mate. The stronger side to move wins in
+ * {@code n} plies if some move reaches a loss in {@code n - 1}; the bare king
+ * to move loses in {@code n} plies if every move reaches a win of at most
+ * {@code n - 1}. Whatever is unmarked when a pass changes nothing is a draw.
+ * <p>
+ * KPK needs KQK and KRK for its promotions, so they are generated first.
+ * Run with {@code java chess.TablebaseGenerator <directory>}.
+ */
+public final class TablebaseGenerator {
+
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+    private static final int WHITE = ChessGame.TeamColor.WHITE.ordinal();
+
+    private final ChessPiece.PieceType type;
+    private final byte[] queenTable;
+    private final byte[] rookTable;
+    private final int[] values = new int[Tablebase.TABLE_SIZE];
+    private final boolean[] legal = new boolean[Tablebase.TABLE_SIZE];
+
+    private TablebaseGenerator(ChessPiece.PieceType type, byte[] queenTable, byte[] rookTable) {
+        this.type = type;
+        this.queenTable = queenTable;
+        this.rookTable = rookTable;
+    }
+
+    /**
+     * Generates the KQK, KRK and KPK tables in that order.
+     */
+    public static byte[][] generateAll() {
+        byte[] queen = new TablebaseGenerator(ChessPiece.PieceType.QUEEN, null, null).generate();
+        byte[] rook = new TablebaseGenerator(ChessPiece.PieceType.ROOK, null, null).generate();
+        byte[] pawn = new TablebaseGenerator(ChessPiece.PieceType.PAWN, queen, rook).generate();
+        return new byte[][]{queen, rook, pawn};
+    }
+
+    public static void writeAll(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        byte[][] tables = generateAll();
+        for (int i = 0; i < tables.length; i++) {
+            Files.write(directory.resolve(Tablebase.FILE_NAMES[i]), tables[i]);
+        }
+    }
+
+    private byte[] generate() {
+        Arrays.fill(values, UNKNOWN);
+        for (int index = 0; index < Tablebase.TABLE_SIZE; index++) {
+            legal[index] = isLegal(index);
+            if (legal[index] && Tablebase.mover(index) == Tablebase.WEAK && !weakHasMove(index) && weakInCheck(index)) {
+                values[index] = Tablebase.loss(0);
+            }
+        }
+
+        for (int plies = 1; ; plies += 2) {
+            boolean changed = false;
+            for (int index = 0; index < Tablebase.TABLE_SIZE; index++) {
+                if (legal[index] && values[index] == UNKNOWN && Tablebase.mover(index) == Tablebase.STRONG
+                        && strongReachesLoss(index, plies - 1)) {
+                    values[index] = plies;
+                    changed = true;
+                }
+            }
+            for (int index = 0; index < Tablebase.TABLE_SIZE; index++) {
+                if (legal[index] && values[index] == UNKNOWN && Tablebase.mover(index) == Tablebase.WEAK
+                        && weakOnlyReachesWins(index)) {
+                    values[index] = Tablebase.loss(plies + 1);
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                break;
+            }
+        }
+
+        byte[] table = new byte[Tablebase.TABLE_SIZE];
+        for (int index = 0; index < Tablebase.TABLE_SIZE; index++) {
+            table[index] = (byte) ((values[index] == UNKNOWN) ? Tablebase.DRAW : values[index]);
+        }
+        return table;
+    }
+
+    private boolean isLegal(int index) {
+        int strongKing = Tablebase.strongKing(index);
+        int weakKing = Tablebase.weakKing(index);
+        int piece = Tablebase.piece(index);
+        if (strongKing == weakKing || piece == strongKing || piece == weakKing
+                || (MoveTables.KING_ATTACKS[strongKing] & bit(weakKing)) != 0) {
+            return false;
+        }
+        if (type == ChessPiece.PieceType.PAWN && (ChessBoard.row(piece) == 1 || ChessBoard.row(piece) == 8)) {
+            return false;
+        }
+        // The side that just moved cannot have left its king in check.
+        return Tablebase.mover(index) == Tablebase.WEAK || !weakInCheck(index);
+    }
+
+    /**
+     * @return True if a move of the stronger side reaches a position where the
+     * bare king loses in exactly {@code lossPlies}
+     */
+    private boolean strongReachesLoss(int index, int lossPlies) {
+        int target = Tablebase.loss(lossPlies);
+        int strongKing = Tablebase.strongKing(index);
+        int weakKing = Tablebase.weakKing(index);
+        int piece = Tablebase.piece(index);
+
+        long kingTargets = MoveTables.KING_ATTACKS[strongKing]
+                & ~MoveTables.KING_ATTACKS[weakKing] & ~bit(piece) & ~bit(weakKing);
+        for (long targets = kingTargets; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            if (values[Tablebase.index(Tablebase.WEAK, to, weakKing, piece)] == target) {
+                return true;
+            }
+        }
+
+        if (type == ChessPiece.PieceType.PAWN) {
+            int to = piece + 8;
+            if (to == strongKing || to == weakKing) {
+                return false;
+            }
+            if (ChessBoard.row(to) == 8) {
+                int promoted = Tablebase.index(Tablebase.WEAK, strongKing, weakKing, to);
+                return queenTable[promoted] == target || rookTable[promoted] == target;
+            }
+            if (values[Tablebase.index(Tablebase.WEAK, strongKing, weakKing, to)] == target) {
+                return true;
+            }
+            int doublePush = to + 8;
+            return ChessBoard.row(piece) == 2 && doublePush != strongKing && doublePush != weakKing
+                    && values[Tablebase.index(Tablebase.WEAK, strongKing, weakKing, doublePush)] == target;
+        }
+
+        for (int direction : directions()) {
+            for (int to : MoveTables.RAYS[direction][piece]) {
+                if (to == strongKing || to == weakKing) {
+                    break;
+                }
+                if (values[Tablebase.index(Tablebase.WEAK, strongKing, weakKing, to)] == target) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return True if the bare king has at least one move and every move
+     * reaches a position the stronger side has already been found to win
+     */
+    private boolean weakOnlyReachesWins(int index) {
+        int strongKing = Tablebase.strongKing(index);
+        int piece = Tablebase.piece(index);
+        long targets = weakKingTargets(index);
+        if (targets == 0) {
+            return false;
+        }
+        // Taking the last piece leaves two bare kings, a draw.
+        if ((targets & bit(piece)) != 0) {
+            return false;
+        }
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            int value = values[Tablebase.index(Tablebase.STRONG, strongKing, to, piece)];
+            if (value == UNKNOWN || value <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean weakHasMove(int index) {
+        return weakKingTargets(index) != 0;
+    }
+
+    private boolean weakInCheck(int index) {
+        return (attacks(index) & bit(Tablebase.weakKing(index))) != 0;
+    }
+
+    private long weakKingTargets(int index) {
+        int strongKing = Tablebase.strongKing(index);
+        int weakKing = Tablebase.weakKing(index);
+        int piece = Tablebase.piece(index);
+        long guarded = attacks(index) | MoveTables.KING_ATTACKS[strongKing] | bit(strongKing);
+        long targets = MoveTables.KING_ATTACKS[weakKing] & ~guarded;
+        // The piece can be taken unless its king defends it.
+        if ((MoveTables.KING_ATTACKS[weakKing] & bit(piece)) != 0
+                && (MoveTables.KING_ATTACKS[strongKing] & bit(piece)) == 0) {
+            targets |= bit(piece);
+        }
+        return targets;
+    }
+
+    /**
+     * Squares the piece attacks, looking through the bare king so it cannot
+     * step back along a line it is checked on.
+     */
+    private long attacks(int index) {
+        int strongKing = Tablebase.strongKing(index);
+        int piece = Tablebase.piece(index);
+        if (type == ChessPiece.PieceType.PAWN) {
+            return MoveTables.PAWN_ATTACKS[WHITE][piece];
+        }
+        long attacked = 0L;
+        for (int direction : directions()) {
+            for (int square : MoveTables.RAYS[direction][piece]) {
+                if (square == strongKing) {
+                    break;
+                }
+                attacked |= bit(square);
+            }
+        }
+        return attacked & ~bit(piece);
+    }
+
+    private int[] directions() {
+        return (type == ChessPiece.PieceType.ROOK) ? MoveTables.STRAIGHT_DIRECTIONS : MoveTables.ALL_DIRECTIONS;
+    }
+
+    private static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java chess.TablebaseGenerator <directory>");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        writeAll(Path.of(args[0]));
+        System.out.printf("Wrote %s to %s in %.1f s%n", String.join(", ", Tablebase.FILE_NAMES), args[0],
+                (System.nanoTime() - start) / 1e9);
+    }
+}
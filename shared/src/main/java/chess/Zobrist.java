@@ -0,0 +1,40 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist position hashing. A position's key is the XOR of
+ * the keys of every piece on its square, the side-to-move key when black is
+ * to move, and the castling and en passant keys that apply.
+ * <p>
+ * The keys come from a fixed seed, so every process computes the same key
+ * for the same position and keys can be stored or shared between servers.
+ */
+final class Zobrist {
+
+    private static final long SEED = 0x5A0B_2157_C4E5_5EEDL;
+
+    static final long[][] PIECE_SQUARE = new long[ChessBoard.PIECE_KINDS][64];
+    static final long BLACK_TO_MOVE;
+    static final long[] CASTLING = new long[16];
+    static final long[] EN_PASSANT_FILE = new long[8];
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long[] squares : PIECE_SQUARE) {
+            for (int square = 0; square < squares.length; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        for (int rights = 1; rights < CASTLING.length; rights++) {
+            CASTLING[rights] = random.nextLong();
+        }
+        for (int file = 0; file < EN_PASSANT_FILE.length; file++) {
+            EN_PASSANT_FILE[file] = random.nextLong();
+        }
+    }
+
+    private Zobrist() {
+    }
+}
@@ -0,0 +1,180 @@
+package engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * A read-only opening book backed by a memory-mapped file, so lookups only
+ * touch the pages they need and every process on a machine shares one copy
+ * through the page cache.
+ * <p>
+ * The file uses the Polyglot layout: 16-byte big-endian entries of key
+ * (8 bytes), move (2), weight (2) and learn data (4, unused), sorted by
+ * unsigned key. The keys are this project's {@link ChessGame#positionKey()}
+ * values rather than Polyglot's, so books must be built with
+ * {@link OpeningBookBuilder}. Moves use Polyglot's encoding: to square in
+ * bits 0-5, from square in bits 6-11 and promotion piece (knight 1, bishop 2,
+ * rook 3, queen 4) in bits 12-14. Castling is stored as the king's two-square
+ * move, not Polyglot's king-takes-rook.
+ */
+public final class OpeningBook implements AutoCloseable {
+
+    static final int ENTRY_BYTES = 16;
+
+    private static final ChessPiece.PieceType[] POLYGLOT_PROMOTIONS = {
+            null,
+            ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.QUEEN
+    };
+
+    /**
+     * A move the book suggests and how strongly.
+     */
+    public record BookMove(ChessMove move, int weight) {
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(FileChannel channel, ByteBuffer entries) {
+        this.channel = channel;
+        this.entries = entries;
+        this.size = entries.capacity() / ENTRY_BYTES;
+    }
+
+    public static OpeningBook open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long length = channel.size();
+            if (length % ENTRY_BYTES != 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, length).order(ByteOrder.BIG_ENDIAN);
+            return new OpeningBook(channel, entries);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the book's legal moves for the side to move, in file order
+     * (highest weight first for books written by {@link OpeningBookBuilder})
+     */
+    public List<BookMove> moves(ChessGame game) {
+        List<BookMove> moves = new ArrayList<>();
+        long key = game.positionKey();
+        MoveList legal = null;
+        for (int index = firstIndex(key); index < size && key(index) == key; index++) {
+            if (legal == null) {
+                legal = new MoveList();
+                game.legalMoves(legal);
+            }
+            int move = fromPolyglot(Short.toUnsignedInt(entries.getShort(index * ENTRY_BYTES + 8)));
+            int weight = Short.toUnsignedInt(entries.getShort(index * ENTRY_BYTES + 10));
+            // A stale or colliding entry must never produce an illegal move.
+            if (weight > 0 && contains(legal, move)) {
+                moves.add(new BookMove(PackedMove.toChessMove(move), weight));
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Chooses a book move at random in proportion to the weights.
+     *
+     * @return the move, or null if the position is not in the book
+     */
+    public ChessMove pick(ChessGame game, RandomGenerator random) {
+        List<BookMove> moves = moves(game);
+        int total = 0;
+        for (BookMove move : moves) {
+            total += move.weight();
+        }
+        if (total == 0) {
+            return null;
+        }
+        int choice = random.nextInt(total);
+        for (BookMove move : moves) {
+            choice -= move.weight();
+            if (choice < 0) {
+                return move.move();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return the first index whose key is not below {@code key}
+     */
+    private int firstIndex(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(key(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long key(int index) {
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    private static boolean contains(MoveList moves, int move) {
+        for (int i = 0; i < moves.size(); i++) {
+            if (PackedMove.sameMove(moves.get(i), move)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static int toPolyglot(ChessMove move) {
+        int packed = PackedMove.of(move);
+        int from = PackedMove.from(packed);
+        int to = PackedMove.to(packed);
+        int promotion = 0;
+        for (int i = 1; i < POLYGLOT_PROMOTIONS.length; i++) {
+            if (POLYGLOT_PROMOTIONS[i] == move.getPromotionPiece()) {
+                promotion = i;
+            }
+        }
+        return to | (from << 6) | (promotion << 12);
+    }
+
+    static int fromPolyglot(int move) {
+        int promotion = (move >>> 12) & 0x7;
+        ChessPiece.PieceType type = (promotion < POLYGLOT_PROMOTIONS.length) ? POLYGLOT_PROMOTIONS[promotion] : null;
+        return PackedMove.of((move >>> 6) & 0x3F, move & 0x3F, type);
+    }
+}
@@ -0,0 +1,331 @@
+package engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles PGN games into an {@link OpeningBook} file.
+ * <p>
+ * Each move of the first {@code maxPlies} plies of every game is credited to
+ * the position it was played from: 2 points if the mover went on to win,
+ * 1 for a draw or unknown result and none for a loss, as Polyglot does.
+ * Comments, variations and annotations are skipped. A game stops counting at
+ * the first move that cannot be read or is not legal.
+ * <p>
+ * Run with {@code java engine.OpeningBookBuilder [--plies N] book.bin games.pgn...}.
+ */
+public final class OpeningBookBuilder {
+
+    public static final int DEFAULT_MAX_PLIES = 20;
+
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private final int maxPlies;
+    private final Map<Long, Map<Integer, Integer>> weights = new HashMap<>();
+
+    private final List<Long> gameKeys = new ArrayList<>();
+    private final List<Integer> gameMoves = new ArrayList<>();
+    private final List<ChessGame.TeamColor> gameMovers = new ArrayList<>();
+    private ChessGame game = new ChessGame();
+    private boolean gameStopped;
+    private int games;
+
+    public OpeningBookBuilder(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Adds every game in a PGN text.
+     */
+    public void addPgn(CharSequence pgn) {
+        int length = pgn.length();
+        int i = 0;
+        while (i < length) {
+            char c = pgn.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '{') {
+                i = skipPast(pgn, i, '}');
+            } else if (c == ';') {
+                i = skipPast(pgn, i, '\n');
+            } else if (c == '[') {
+                // A tag pair starts the next game, even if the last one had no result.
+                if (!gameMoves.isEmpty()) {
+                    finishGame(null);
+                }
+                i = skipPast(pgn, i, ']');
+            } else if (c == '(') {
+                i = skipVariation(pgn, i);
+            } else {
+                int end = i;
+                while (end < length && !Character.isWhitespace(pgn.charAt(end)) && "{}()[];".indexOf(pgn.charAt(end)) < 0) {
+                    end++;
+                }
+                readToken(pgn.subSequence(i, end).toString());
+                i = end;
+            }
+        }
+        if (!gameMoves.isEmpty()) {
+            finishGame(null);
+        }
+    }
+
+    public int games() {
+        return games;
+    }
+
+    /**
+     * Writes the book, sorted by unsigned key and then by descending weight.
+     */
+    public void write(OutputStream output) throws IOException {
+        List<Long> keys = new ArrayList<>(weights.keySet());
+        keys.sort(Long::compareUnsigned);
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output));
+        for (long key : keys) {
+            List<Map.Entry<Integer, Integer>> moves = new ArrayList<>(weights.get(key).entrySet());
+            moves.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+            for (Map.Entry<Integer, Integer> move : moves) {
+                if (move.getValue() == 0) {
+                    continue;
+                }
+                data.writeLong(key);
+                data.writeShort(move.getKey());
+                data.writeShort(Math.min(MAX_WEIGHT, move.getValue()));
+                data.writeInt(0);
+            }
+        }
+        data.flush();
+    }
+
+    public void write(Path path) throws IOException {
+        try (OutputStream output = Files.newOutputStream(path)) {
+            write(output);
+        }
+    }
+
+    private void readToken(String token) {
+        switch (token) {
+            case "1-0" -> finishGame(ChessGame.TeamColor.WHITE);
+            case "0-1" -> finishGame(ChessGame.TeamColor.BLACK);
+            case "1/2-1/2", "*" -> finishGame(null);
+            default -> {
+                if (token.startsWith("$")) {
+                    return;
+                }
+                // Move numbers may be glued to the move, as in "12.e4" or "12...Nf6".
+                int start = 0;
+                while (start < token.length() && Character.isDigit(token.charAt(start))) {
+                    start++;
+                }
+                while (start < token.length() && token.charAt(start) == '.') {
+                    start++;
+                }
+                if (start < token.length()) {
+                    playSan(token.substring(start));
+                }
+            }
+        }
+    }
+
+    private void playSan(String san) {
+        if (gameStopped || gameMoves.size() >= maxPlies) {
+            gameStopped = true;
+            return;
+        }
+        ChessMove move = parseSan(game, san);
+        if (move == null) {
+            gameStopped = true;
+            return;
+        }
+        gameKeys.add(game.positionKey());
+        gameMoves.add(OpeningBook.toPolyglot(move));
+        gameMovers.add(game.getTeamTurn());
+        try {
+            game.makeMove(move);
+        } catch (InvalidMoveException e) {
+            gameStopped = true;
+        }
+    }
+
+    private void finishGame(ChessGame.TeamColor winner) {
+        for (int i = 0; i < gameMoves.size(); i++) {
+            int points = (winner == null) ? 1 : (winner == gameMovers.get(i)) ? 2 : 0;
+            weights.computeIfAbsent(gameKeys.get(i), key -> new HashMap<>())
+                    .merge(gameMoves.get(i), points, Integer::sum);
+        }
+        if (!gameMoves.isEmpty()) {
+            games++;
+        }
+        gameKeys.clear();
+        gameMoves.clear();
+        gameMovers.clear();
+        game = new ChessGame();
+        gameStopped = false;
+    }
+
+    /**
+     * Resolves a move in standard algebraic notation against the legal moves
+     * of the position.
+     *
+     * @return the move, or null if it is not exactly one legal move
+     */
+    static ChessMove parseSan(ChessGame game, String san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (san.startsWith("O-O") || san.startsWith("0-0")) {
+            int row = (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? 1 : 8;
+            int toColumn = (end == 5) ? 3 : (end == 3) ? 7 : 0;
+            return (toColumn == 0) ? null
+                    : findLegalMove(game, ChessPiece.PieceType.KING, 5, row, toColumn, row, null);
+        }
+        if (end < 2) {
+            return null;
+        }
+
+        ChessPiece.PieceType promotion = null;
+        char last = san.charAt(end - 1);
+        if ("QRBN".indexOf(last) >= 0) {
+            promotion = pieceType(last);
+            end--;
+            if (end > 0 && san.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+        if (end < 2) {
+            return null;
+        }
+        int toColumn = san.charAt(end - 2) - 'a' + 1;
+        int toRow = san.charAt(end - 1) - '0';
+        if (toColumn < 1 || toColumn > 8 || toRow < 1 || toRow > 8) {
+            return null;
+        }
+
+        int start = 0;
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        if ("KQRBN".indexOf(san.charAt(0)) >= 0) {
+            type = pieceType(san.charAt(0));
+            start = 1;
+        }
+        int fromColumn = 0;
+        int fromRow = 0;
+        for (int i = start; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromColumn = c - 'a' + 1;
+            } else if (c >= '1' && c <= '8') {
+                fromRow = c - '0';
+            } else if (c != 'x' && c != '-') {
+                return null;
+            }
+        }
+
+        return findLegalMove(game, type, fromColumn, fromRow, toColumn, toRow, promotion);
+    }
+
+    /**
+     * @param fromColumn the start column, or 0 if not given
+     * @param fromRow    the start row, or 0 if not given
+     * @return the only legal move that fits, or null if none or several do
+     */
+    private static ChessMove findLegalMove(ChessGame game, ChessPiece.PieceType type, int fromColumn, int fromRow,
+                                           int toColumn, int toRow, ChessPiece.PieceType promotion) {
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        ChessMove match = null;
+        for (int i = 0; i < moves.size(); i++) {
+            ChessMove move = PackedMove.toChessMove(moves.get(i));
+            ChessPosition from = move.getStartPosition();
+            ChessPosition to = move.getEndPosition();
+            if (to.getRow() != toRow || to.getColumn() != toColumn || move.getPromotionPiece() != promotion
+                    || (fromColumn != 0 && from.getColumn() != fromColumn)
+                    || (fromRow != 0 && from.getRow() != fromRow)
+                    || game.getBoard().getPiece(from).getPieceType() != type) {
+                continue;
+            }
+            if (match != null) {
+                return null;
+            }
+            match = move;
+        }
+        return match;
+    }
+
+    private static ChessPiece.PieceType pieceType(char letter) {
+        return switch (letter) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            default -> ChessPiece.PieceType.KNIGHT;
+        };
+    }
+
+    private static int skipPast(CharSequence text, int from, char end) {
+        int i = from + 1;
+        while (i < text.length() && text.charAt(i) != end) {
+            i++;
+        }
+        return i + 1;
+    }
+
+    private static int skipVariation(CharSequence text, int from) {
+        int depth = 0;
+        int i = from;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                i = skipPast(text, i, '}');
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int maxPlies = DEFAULT_MAX_PLIES;
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--plies")) {
+                maxPlies = Integer.parseInt(args[++i]);
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.size() < 2) {
+            System.err.println("Usage: java engine.OpeningBookBuilder [--plies N] book.bin games.pgn...");
+            System.exit(1);
+        }
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(maxPlies);
+        for (String pgn : paths.subList(1, paths.size())) {
+            builder.addPgn(Files.readString(Path.of(pgn)));
+        }
+        builder.write(Path.of(paths.get(0)));
+        System.out.printf("Wrote %d games to %s%n", builder.games(), paths.get(0));
+    }
+}
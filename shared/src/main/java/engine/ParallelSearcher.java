@@ -0,0 +1,190 @@
+package engine;
+
+import chess.ChessGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lazy SMP search: a main {@link Searcher} plus helper searchers that search
+ * the same position on their own threads and share one
+ * {@link TranspositionTable}. The helpers' entries let the main thread cut
+ * off and order moves sooner, so it gets deeper in the same wall-clock time.
+ * Half of the helpers start one iteration deeper so the threads drift apart
+ * instead of repeating each other's work.
+ * <p>
+ * The reported move, score and line are always the main thread's. With one
+ * thread no helpers run and results are deterministic. Threads come from a
+ * shared {@link SearchPool}; a searcher runs one search at a time and keeps
+ * its table between searches, so use one per game.
+ */
+public final class ParallelSearcher {
+
+    private final SearchPool pool;
+    private final TranspositionTable table;
+    private final List<Searcher> searchers = new ArrayList<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Searcher[] active;
+    private volatile boolean stopRequested;
+    private volatile boolean gaveWay;
+
+    public ParallelSearcher(SearchPool pool, int tableMegabytes) {
+        this.pool = pool;
+        this.table = new TranspositionTable(tableMegabytes);
+    }
+
+    /**
+     * Starts searching a copy of the game's position on the search pool.
+     *
+     * @param game    the position to search; later changes to it do not affect the search
+     * @param limits  when to stop
+     * @param threads how many threads to use, including the main one; fewer are used
+     *                if the pool is busy
+     * @return the main thread's result, completed when every thread has stopped
+     * @throws IllegalStateException if this searcher is already searching
+     */
+    public CompletableFuture<SearchResult> search(ChessGame game, SearchLimits limits, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least one thread");
+        }
+        return start(game, limits, threads, false);
+    }
+
+    /**
+     * Starts a single-threaded search that only uses an otherwise idle pool
+     * thread: it doesn't start if no thread is free or another search is
+     * waiting for one, and stops as soon as another search has to wait.
+     *
+     * @param game   the position to search; later changes to it do not affect the search
+     * @param limits when to stop
+     * @return the result, or null if the search didn't start or gave way to another
+     * @throws IllegalStateException if this searcher is already searching
+     */
+    public CompletableFuture<SearchResult> searchIdle(ChessGame game, SearchLimits limits) {
+        return start(game, limits, 1, true);
+    }
+
+    private CompletableFuture<SearchResult> start(ChessGame game, SearchLimits limits, int threads, boolean idle) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A search is already running");
+        }
+        ChessGame position = new ChessGame(game);
+        stopRequested = false;
+        gaveWay = false;
+
+        CompletableFuture<SearchResult> result = new CompletableFuture<>();
+        pool.execute(() -> {
+            SearchResult searchResult = null;
+            Throwable failure = null;
+            try {
+                searchResult = run(position, limits, Math.min(threads, pool.maxThreads()), idle);
+            } catch (Throwable e) {
+                failure = e;
+            }
+            // Allow the next search before completing, so callbacks can start one.
+            running.set(false);
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(searchResult);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Asks the running search, if any, to stop as soon as possible. Its future
+     * then completes with the best move found so far.
+     */
+    public void stop() {
+        stopRequested = true;
+        Searcher[] current = active;
+        if (current != null) {
+            for (Searcher searcher : current) {
+                searcher.stop();
+            }
+        }
+    }
+
+    public boolean isSearching() {
+        return running.get();
+    }
+
+    /**
+     * Stops an idle search because another search is waiting for its thread.
+     */
+    void giveWay() {
+        gaveWay = true;
+        stop();
+    }
+
+    private SearchResult run(ChessGame position, SearchLimits limits, int threads, boolean idle)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        if (!idle) {
+            pool.acquireMain();
+        } else if (!pool.tryAcquireIdle(this)) {
+            return null;
+        }
+        int helpers = pool.tryAcquireHelpers(threads - 1);
+        try {
+            while (searchers.size() <= helpers) {
+                searchers.add(new Searcher(table));
+            }
+            Searcher[] assigned = searchers.subList(0, helpers + 1).toArray(new Searcher[0]);
+            for (Searcher searcher : assigned) {
+                searcher.clearStop();
+            }
+            // Publishing the searchers before checking the flag means a concurrent
+            // stop() either sees them or is seen here.
+            active = assigned;
+            if (stopRequested) {
+                stop();
+            }
+            table.newSearch();
+
+            AtomicLong helperNodes = new AtomicLong();
+            CountDownLatch helpersDone = new CountDownLatch(helpers);
+            for (int i = 1; i <= helpers; i++) {
+                Searcher helper = assigned[i];
+                ChessGame helperPosition = new ChessGame(position);
+                int firstDepth = 1 + (i % 2);
+                pool.execute(() -> {
+                    try {
+                        helperNodes.addAndGet(helper.search(helperPosition, limits, firstDepth).nodes());
+                    } finally {
+                        helpersDone.countDown();
+                    }
+                });
+            }
+
+            SearchResult main;
+            try {
+                main = assigned[0].search(position, limits, 1);
+            } finally {
+                for (int i = 1; i <= helpers; i++) {
+                    assigned[i].stop();
+                }
+                helpersDone.await();
+                active = null;
+            }
+
+            if (gaveWay) {
+                return null;
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+            return new SearchResult(main.move(), main.score(), main.depth(), main.nodes() + helperNodes.get(),
+                    elapsedMillis, main.principalVariation());
+        } finally {
+            if (idle) {
+                pool.releaseIdle(this);
+            } else {
+                pool.release(helpers + 1);
+            }
+        }
+    }
+}
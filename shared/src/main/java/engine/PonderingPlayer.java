@@ -0,0 +1,170 @@
+package engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A computer player for one game that keeps thinking on the opponent's time.
+ * <p>
+ * After each of its moves it starts a ponder search on the position that
+ * follows the reply its principal variation predicts. If the opponent plays
+ * that reply, the ponder search simply carries on as the real search, and
+ * the move comes back as soon as the ponder time already spent covers the
+ * move time. Otherwise the ponder search is stopped, which takes at most a
+ * few thousand nodes, and a normal search starts; the shared transposition
+ * table still holds much of what the ponder search found.
+ * <p>
+ * Pondering uses a single thread and only as an idle search on the
+ * {@link SearchPool}: it is skipped when no thread is free, and stops as
+ * soon as a real search in another game has to wait for one. A predicted
+ * reply whose ponder search gave way is then searched as normal.
+ */
+public final class PonderingPlayer {
+
+    private final ParallelSearcher searcher;
+    private final SearchLimits moveLimits;
+    private final SearchLimits ponderLimits;
+    private final int threads;
+
+    private CompletableFuture<SearchResult> thinking;
+    private CompletableFuture<SearchResult> pondering;
+    private long ponderKey;
+    private long ponderStart;
+    private long generation;
+    private boolean closed;
+    private long ponderHits;
+    private long ponderMisses;
+
+    /**
+     * @param pool           the threads to search on
+     * @param tableMegabytes the size of this player's transposition table
+     * @param moveTimeMillis how long to think about each move
+     * @param maxPonderMillis the longest a ponder search may run unanswered
+     * @param threads        how many threads each real search asks for
+     */
+    public PonderingPlayer(SearchPool pool, int tableMegabytes, long moveTimeMillis, long maxPonderMillis,
+                           int threads) {
+        this.searcher = new ParallelSearcher(pool, tableMegabytes);
+        this.moveLimits = SearchLimits.time(moveTimeMillis);
+        this.ponderLimits = SearchLimits.time(maxPonderMillis);
+        this.threads = threads;
+    }
+
+    /**
+     * Chooses a move for the side to move in the game, using the ponder search
+     * if it predicted this position.
+     *
+     * @param game the position to move in; later changes to it do not affect the search
+     * @return the search result, whose move is null if there is no legal move
+     */
+    public synchronized CompletableFuture<SearchResult> play(ChessGame game) {
+        if (closed) {
+            throw new IllegalStateException("The player has been closed");
+        }
+        if (thinking != null && !thinking.isDone()) {
+            return thinking;
+        }
+
+        ChessGame position = new ChessGame(game);
+        CompletableFuture<SearchResult> search;
+        if (pondering != null && ponderKey == position.positionKey()) {
+            ponderHits++;
+            long remaining = moveLimits.maxTimeMillis() - (System.nanoTime() - ponderStart) / 1_000_000L;
+            long current = generation;
+            stopLater(current, remaining);
+            search = pondering.thenCompose(result -> result != null
+                    ? CompletableFuture.completedFuture(result)
+                    : searchAgain(current, position));
+        } else if (pondering != null) {
+            ponderMisses++;
+            searcher.stop();
+            long current = ++generation;
+            search = pondering.handle((result, failure) -> null)
+                    .thenCompose(ignored -> startSearch(current, position));
+        } else {
+            search = searcher.search(position, moveLimits, threads);
+            generation++;
+        }
+        pondering = null;
+
+        thinking = search.thenApply(result -> {
+            startPondering(position, result);
+            return result;
+        });
+        return thinking;
+    }
+
+    /**
+     * Stops any search in progress; the player cannot be used afterwards.
+     */
+    public synchronized void close() {
+        closed = true;
+        pondering = null;
+        searcher.stop();
+    }
+
+    public synchronized long ponderHits() {
+        return ponderHits;
+    }
+
+    public synchronized long ponderMisses() {
+        return ponderMisses;
+    }
+
+    private synchronized CompletableFuture<SearchResult> startSearch(long searchGeneration, ChessGame position) {
+        if (closed || searchGeneration != generation) {
+            return CompletableFuture.failedFuture(new IllegalStateException("The search was superseded"));
+        }
+        return searcher.search(position, moveLimits, threads);
+    }
+
+    /**
+     * Searches a predicted position whose ponder search gave way, moving to a
+     * new generation so the pending stop for the ponder search doesn't cut it short.
+     */
+    private synchronized CompletableFuture<SearchResult> searchAgain(long searchGeneration, ChessGame position) {
+        if (closed || searchGeneration != generation) {
+            return CompletableFuture.failedFuture(new IllegalStateException("The search was superseded"));
+        }
+        generation++;
+        return searcher.search(position, moveLimits, threads);
+    }
+
+    private synchronized void startPondering(ChessGame position, SearchResult result) {
+        List<ChessMove> line = result.principalVariation();
+        if (closed || line.size() < 2) {
+            return;
+        }
+        ChessGame ponderPosition = new ChessGame(position);
+        try {
+            ponderPosition.makeMove(line.get(0));
+            ponderPosition.makeMove(line.get(1));
+        } catch (InvalidMoveException e) {
+            return;
+        }
+        ponderKey = ponderPosition.positionKey();
+        ponderStart = System.nanoTime();
+        generation++;
+        pondering = searcher.searchIdle(ponderPosition, ponderLimits);
+    }
+
+    private void stopLater(long searchGeneration, long delayMillis) {
+        Runnable stop = () -> {
+            synchronized (this) {
+                if (searchGeneration == generation) {
+                    searcher.stop();
+                }
+            }
+        };
+        if (delayMillis <= 0) {
+            stop.run();
+        } else {
+            CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(stop);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package engine;
+
+/**
+ * Bounds on a single search. The search stops at whichever limit it reaches
+ * first and returns the best move from the deepest completed iteration.
+ *
+ * @param maxDepth      the deepest iteration to run, in plies
+ * @param maxNodes      the node budget, or {@link Long#MAX_VALUE} for none
+ * @param maxTimeMillis the wall-clock budget, or {@link Long#MAX_VALUE} for none
+ */
+public record SearchLimits(int maxDepth, long maxNodes, long maxTimeMillis) {
+
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if (maxDepth < 1 || maxDepth > MAX_DEPTH) {
+            throw new IllegalArgumentException("maxDepth must be between 1 and " + MAX_DEPTH);
+        }
+        if (maxNodes < 1 || maxTimeMillis < 1) {
+            throw new IllegalArgumentException("Node and time budgets must be positive");
+        }
+    }
+
+    public static SearchLimits depth(int maxDepth) {
+        return new SearchLimits(maxDepth, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    public static SearchLimits time(long maxTimeMillis) {
+        return new SearchLimits(MAX_DEPTH, Long.MAX_VALUE, maxTimeMillis);
+    }
+
+    public static SearchLimits nodes(long maxNodes) {
+        return new SearchLimits(MAX_DEPTH, maxNodes, Long.MAX_VALUE);
+    }
+}
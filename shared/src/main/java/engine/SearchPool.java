@@ -0,0 +1,136 @@
+package engine;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads all searches in a process share. At most {@code maxThreads}
+ * searcher threads run at once however many searches are requested, so
+ * computer players cannot starve the rest of the server of cores.
+ * <p>
+ * A search waits for one permit for its main thread and then takes as many
+ * helper permits as are free, up to the number it asked for, so a busy pool
+ * degrades searches towards single-threaded rather than queueing them.
+ * <p>
+ * Idle searches, such as pondering, only run on a thread nobody else wants:
+ * one starts only if a permit is free and no search is waiting for one, and
+ * it is told to give way as soon as a search has to wait.
+ */
+public final class SearchPool implements AutoCloseable {
+
+    private final int maxThreads;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final Set<ParallelSearcher> idleSearches = new HashSet<>();
+    private int waitingSearches;
+
+    public SearchPool(int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("A search pool needs at least one thread");
+        }
+        this.maxThreads = maxThreads;
+        this.permits = new Semaphore(maxThreads, true);
+        this.executor = Executors.newCachedThreadPool(new SearchThreadFactory());
+    }
+
+    public int maxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * @return the number of searcher threads currently running
+     */
+    public int activeThreads() {
+        return maxThreads - permits.availablePermits();
+    }
+
+    void acquireMain() throws InterruptedException {
+        if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+            return;
+        }
+        // Counted under the lock, so an idle search either sees this one
+        // waiting and doesn't start, or is already registered and gives way.
+        synchronized (idleSearches) {
+            waitingSearches++;
+            for (ParallelSearcher idle : idleSearches) {
+                idle.giveWay();
+            }
+        }
+        try {
+            permits.acquire();
+        } finally {
+            synchronized (idleSearches) {
+                waitingSearches--;
+            }
+        }
+    }
+
+    /**
+     * Takes a permit for an idle search, which must release it with
+     * {@link #releaseIdle} and stop when asked to give way.
+     *
+     * @return whether a permit was taken; false if none is free or a search is waiting for one
+     */
+    boolean tryAcquireIdle(ParallelSearcher searcher) {
+        synchronized (idleSearches) {
+            if (waitingSearches > 0 || !permits.tryAcquire()) {
+                return false;
+            }
+            idleSearches.add(searcher);
+            return true;
+        }
+    }
+
+    void releaseIdle(ParallelSearcher searcher) {
+        synchronized (idleSearches) {
+            idleSearches.remove(searcher);
+        }
+        permits.release();
+    }
+
+    /**
+     * @return how many of the wanted helper permits were granted, possibly none
+     */
+    int tryAcquireHelpers(int wanted) {
+        int granted = 0;
+        while (granted < wanted && permits.tryAcquire()) {
+            granted++;
+        }
+        return granted;
+    }
+
+    void release(int count) {
+        permits.release(count);
+    }
+
+    /**
+     * Runs a task on a pool thread. The caller must already hold a permit for
+     * it; threads waiting for a permit are idle, so the executor is unbounded.
+     */
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static final class SearchThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "search-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * The outcome of a search.
+ *
+ * @param move              the best move found, or null if the side to move has no legal move
+ * @param score             the score in centipawns from the mover's point of view; mate scores
+ *                          are within {@link SearchLimits#MAX_DEPTH} of {@link Searcher#MATE}
+ * @param depth             the deepest iteration that completed
+ * @param nodes             the number of positions visited
+ * @param elapsedMillis     the wall-clock time spent
+ * @param principalVariation the expected line of play, starting with {@code move}
+ */
+public record SearchResult(ChessMove move, int score, int depth, long nodes, long elapsedMillis,
+                           List<ChessMove> principalVariation) {
+}
@@ -0,0 +1,471 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.Evaluator;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.Tablebase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Iterative-deepening negamax alpha-beta search with quiescence search.
+ * <p>
+ * Positions are cached in a {@link TranspositionTable}, which supplies both
+ * bound cutoffs and the first move to try. Moves are ordered by that hash
+ * move, then captures by
+ * MVV-LVA (most valuable victim, least valuable attacker), then killer moves
+ * and finally the history heuristic. The inner loop works entirely on
+ * {@link PackedMove} ints in per-ply {@link MoveList}s and make/unmake on the
+ * game, so it does not allocate. Leaves are scored by an {@link Evaluator},
+ * and positions covered by the installed {@link Tablebase} are scored
+ * exactly instead of searched. Repetitions of a position played earlier in
+ * the game or in the search line, and the fifty-move rule, score as draws.
+ * <p>
+ * A searcher keeps its tables between searches and is not thread-safe; use
+ * one per thread. The transposition table may be shared between searchers.
+ */
+public final class Searcher {
+
+    public static final int MATE = 100_000;
+
+    static final int INFINITY = 1_000_000;
+    static final int MAX_PLY = 128;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final int[] PIECE_VALUES = new int[TYPES.length];
+
+    static {
+        PIECE_VALUES[ChessPiece.PieceType.KING.ordinal()] = 0;
+        PIECE_VALUES[ChessPiece.PieceType.QUEEN.ordinal()] = 900;
+        PIECE_VALUES[ChessPiece.PieceType.ROOK.ordinal()] = 500;
+        PIECE_VALUES[ChessPiece.PieceType.BISHOP.ordinal()] = 330;
+        PIECE_VALUES[ChessPiece.PieceType.KNIGHT.ordinal()] = 320;
+        PIECE_VALUES[ChessPiece.PieceType.PAWN.ordinal()] = 100;
+    }
+
+    private static final int HASH_MOVE_SCORE = 4_000_000;
+    private static final int CAPTURE_SCORE = 2_000_000;
+    private static final int FIRST_KILLER_SCORE = 1_500_000;
+    private static final int SECOND_KILLER_SCORE = 1_400_000;
+    private static final int HISTORY_LIMIT = 1_000_000;
+    private static final int CHECK_INTERVAL = 2048;
+    private static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    private final MoveList[] moveLists = new MoveList[MAX_PLY];
+    private final int[][] moveScores = new int[MAX_PLY][];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][][] history = new int[2][64][64];
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private final TranspositionTable table;
+    private final Evaluator evaluator = new Evaluator();
+
+    private ChessGame game;
+    private ChessBoard board;
+    private Tablebase tablebase;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean aborted;
+    private volatile boolean stopRequested;
+
+    public Searcher() {
+        this(new TranspositionTable(DEFAULT_TABLE_MEGABYTES));
+    }
+
+    /**
+     * @param table the transposition table to read and fill, possibly shared
+     *              with other searchers
+     */
+    public Searcher(TranspositionTable table) {
+        this.table = table;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            moveLists[ply] = new MoveList();
+            moveScores[ply] = new int[256];
+        }
+    }
+
+    /**
+     * Searches the game's current position for the side to move. The game is
+     * used as scratch space during the search and is left as it was found.
+     *
+     * @param game   the position to search
+     * @param limits when to stop
+     * @return the best move found and how it was found
+     */
+    public SearchResult bestMove(ChessGame game, SearchLimits limits) {
+        stopRequested = false;
+        table.newSearch();
+        return search(game, limits, 1);
+    }
+
+    /**
+     * Runs the iterative deepening loop from {@code firstDepth} without
+     * resetting a pending stop request or ageing the transposition table,
+     * so {@link ParallelSearcher} can coordinate several searchers on one table.
+     */
+    SearchResult search(ChessGame game, SearchLimits limits, int firstDepth) {
+        long start = System.nanoTime();
+        this.game = game;
+        this.board = game.getBoard();
+        this.tablebase = ChessGame.tablebase();
+        nodes = 0;
+        nodeLimit = limits.maxNodes();
+        deadline = (limits.maxTimeMillis() == Long.MAX_VALUE)
+                ? Long.MAX_VALUE
+                : start + limits.maxTimeMillis() * 1_000_000L;
+        aborted = false;
+        prepareTables();
+
+        int bestMove = PackedMove.NONE;
+        int bestScore = 0;
+        int completedDepth = 0;
+        List<ChessMove> bestLine = List.of();
+
+        for (int depth = Math.min(firstDepth, limits.maxDepth()); depth <= limits.maxDepth(); depth++) {
+            int score = negamax(depth, 0, -INFINITY, INFINITY, bestMove);
+            if (aborted) {
+                // Root moves only enter the principal variation once fully searched,
+                // and the previous best move is searched first, so a partial
+                // iteration's choice is at least as good as the last complete one.
+                if (pvLength[0] > 0) {
+                    bestMove = pv[0][0];
+                    bestLine = principalVariation();
+                }
+                break;
+            }
+            completedDepth = depth;
+            bestScore = score;
+            if (pvLength[0] == 0) {
+                break;
+            }
+            bestMove = pv[0][0];
+            bestLine = principalVariation();
+            if (Math.abs(score) >= MATE - MAX_PLY) {
+                break;
+            }
+        }
+
+        if (bestMove == PackedMove.NONE) {
+            bestMove = firstLegalMove();
+            bestLine = (bestMove == PackedMove.NONE) ? List.of() : List.of(PackedMove.toChessMove(bestMove));
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+        ChessMove move = (bestMove == PackedMove.NONE) ? null : PackedMove.toChessMove(bestMove);
+        this.game = null;
+        this.board = null;
+        this.tablebase = null;
+        return new SearchResult(move, bestScore, completedDepth, nodes, elapsedMillis, bestLine);
+    }
+
+    /**
+     * Asks a running search, possibly on another thread, to stop as soon as
+     * possible. {@link #bestMove} then returns the best move found so far.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    void clearStop() {
+        stopRequested = false;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta, int hashMove) {
+        pvLength[ply] = ply;
+        ChessGame.TeamColor mover = game.getTeamTurn();
+        boolean inCheck = game.isInCheck(mover);
+        if (inCheck && ply < MAX_PLY / 2) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiescence(ply, alpha, beta);
+        }
+        if (countNode() || ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(game);
+        }
+        // A position that has occurred before can be forced to repeat again, so score it as a draw.
+        if (ply > 0 && (game.repetitions() > 0 || game.isFiftyMoveDraw())) {
+            return 0;
+        }
+        // The root still searches, since the tables give a score but not a move.
+        int endgame = (ply > 0) ? probeTablebase(ply) : Tablebase.NOT_FOUND;
+        if (endgame != Tablebase.NOT_FOUND) {
+            return endgame;
+        }
+
+        long key = game.positionKey();
+        long entry = table.probe(key);
+        if (entry != 0) {
+            if (hashMove == PackedMove.NONE) {
+                hashMove = TranspositionTable.move(entry);
+            }
+            // The root always searches, so it has a principal variation to report.
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry, ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        game.pseudoLegalMoves(moves);
+        scoreMoves(ply, moves, hashMove);
+
+        int originalAlpha = alpha;
+        int legalMoves = 0;
+        int bestScore = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = pickNext(ply, moves, i);
+            game.makeMove(move);
+            if (game.isInCheck(mover)) {
+                game.unmakeMove();
+                continue;
+            }
+            legalMoves++;
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha, PackedMove.NONE);
+            game.unmakeMove();
+            if (aborted) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (score >= beta) {
+                        if (!isTactical(move)) {
+                            rememberQuietCutoff(ply, move, mover, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (legalMoves == 0) {
+            bestScore = inCheck ? -MATE + ply : 0;
+        }
+
+        int bound = (bestScore >= beta)
+                ? TranspositionTable.BOUND_LOWER
+                : (bestScore > originalAlpha) ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(key, bestMove, bestScore, depth, bound, ply);
+        return bestScore;
+    }
+
+    /**
+     * Resolves captures and promotions until the position is quiet, so the
+     * static evaluation is never taken in the middle of an exchange.
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        int endgame = probeTablebase(ply);
+        if (endgame != Tablebase.NOT_FOUND) {
+            return endgame;
+        }
+        int standPat = evaluator.evaluate(game);
+        if (countNode() || ply >= MAX_PLY - 1) {
+            return standPat;
+        }
+        if (standPat >= beta) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        game.pseudoLegalMoves(moves);
+        int tactical = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (isTactical(move)) {
+                moves.set(tactical++, move);
+            }
+        }
+        moves.truncate(tactical);
+        scoreMoves(ply, moves, PackedMove.NONE);
+
+        ChessGame.TeamColor mover = game.getTeamTurn();
+        int bestScore = standPat;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = pickNext(ply, moves, i);
+            game.makeMove(move);
+            if (game.isInCheck(mover)) {
+                game.unmakeMove();
+                continue;
+            }
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            game.unmakeMove();
+            if (aborted) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    /**
+     * @return the exact score of the position from the endgame tables, or
+     * {@link Tablebase#NOT_FOUND}
+     */
+    private int probeTablebase(int ply) {
+        if (tablebase == null) {
+            return Tablebase.NOT_FOUND;
+        }
+        int value = tablebase.probeValue(game);
+        if (value == Tablebase.NOT_FOUND || value == Tablebase.DRAW) {
+            return value;
+        }
+        return (value > 0) ? MATE - ply - value : -MATE + ply + (-value - 1);
+    }
+
+    /**
+     * Counts a node and checks the budgets every {@link #CHECK_INTERVAL} nodes.
+     *
+     * @return True if the search has been aborted
+     */
+    private boolean countNode() {
+        nodes++;
+        if (nodes >= nodeLimit) {
+            aborted = true;
+        } else if ((nodes % CHECK_INTERVAL) == 0 && (stopRequested || System.nanoTime() > deadline)) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    private static boolean isTactical(int move) {
+        return PackedMove.hasFlag(move, PackedMove.FLAG_CAPTURE) || PackedMove.promotion(move) != null;
+    }
+
+    private void scoreMoves(int ply, MoveList moves, int hashMove) {
+        if (moveScores[ply].length < moves.size()) {
+            moveScores[ply] = new int[moves.size() * 2];
+        }
+        int[] scores = moveScores[ply];
+        int color = game.getTeamTurn().ordinal();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int from = PackedMove.from(move);
+            int to = PackedMove.to(move);
+            int score;
+            if (hashMove != PackedMove.NONE && PackedMove.sameMove(move, hashMove)) {
+                score = HASH_MOVE_SCORE;
+            } else if (isTactical(move)) {
+                ChessPiece victim = board.pieceAt(to);
+                int victimValue = (victim == null) ? 0 : PIECE_VALUES[victim.getPieceType().ordinal()];
+                int attackerValue = PIECE_VALUES[board.pieceAt(from).getPieceType().ordinal()];
+                ChessPiece.PieceType promotion = PackedMove.promotion(move);
+                int promotionValue = (promotion == null) ? 0 : PIECE_VALUES[promotion.ordinal()];
+                score = CAPTURE_SCORE + (victimValue + promotionValue) * 16 - attackerValue / 10;
+            } else if (PackedMove.sameMove(move, killers[ply][0])) {
+                score = FIRST_KILLER_SCORE;
+            } else if (PackedMove.sameMove(move, killers[ply][1])) {
+                score = SECOND_KILLER_SCORE;
+            } else {
+                score = history[color][from][to];
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Selection sort one step at a time: moves the best-scored remaining move
+     * to {@code index}, since a cutoff usually comes before the list is sorted.
+     */
+    private int pickNext(int ply, MoveList moves, int index) {
+        int[] scores = moveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves.get(best);
+        if (best != index) {
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return move;
+    }
+
+    private void rememberQuietCutoff(int ply, int move, ChessGame.TeamColor mover, int depth) {
+        if (!PackedMove.sameMove(move, killers[ply][0])) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] fromHistory = history[mover.ordinal()][PackedMove.from(move)];
+        int to = PackedMove.to(move);
+        fromHistory[to] = Math.min(HISTORY_LIMIT, fromHistory[to] + depth * depth);
+    }
+
+    private void updatePrincipalVariation(int ply, int move) {
+        pv[ply][ply] = move;
+        int childLength = pvLength[ply + 1];
+        for (int i = ply + 1; i < childLength; i++) {
+            pv[ply][i] = pv[ply + 1][i];
+        }
+        pvLength[ply] = Math.max(childLength, ply + 1);
+    }
+
+    private List<ChessMove> principalVariation() {
+        List<ChessMove> line = new ArrayList<>(pvLength[0]);
+        for (int i = 0; i < pvLength[0]; i++) {
+            line.add(PackedMove.toChessMove(pv[0][i]));
+        }
+        return line;
+    }
+
+    /**
+     * Killers are position-specific and reset per search; history is aged so
+     * it still favours recently useful moves without dominating new searches.
+     */
+    private void prepareTables() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = PackedMove.NONE;
+            plyKillers[1] = PackedMove.NONE;
+        }
+        for (int[][] colorHistory : history) {
+            for (int[] fromHistory : colorHistory) {
+                for (int to = 0; to < fromHistory.length; to++) {
+                    fromHistory[to] /= 8;
+                }
+            }
+        }
+    }
+
+    private int firstLegalMove() {
+        MoveList moves = moveLists[0];
+        moves.clear();
+        game.legalMoves(moves);
+        return moves.isEmpty() ? PackedMove.NONE : moves.get(0);
+    }
+}
@@ -0,0 +1,164 @@
+package engine;
+
+/**
+ * A fixed-size, lock-free transposition table that several search threads
+ * can share.
+ * <p>
+ * Each entry is two longs: the packed data and the position key XORed with
+ * that data. A probe only accepts an entry whose two halves XOR back to the
+ * probed key, so an entry torn by concurrent writers reads as a miss instead
+ * of returning another position's data. Entries live in two-slot buckets; a
+ * store replaces the slot holding the same position, otherwise the slot left
+ * by an older search or searched to a shallower depth.
+ * <p>
+ * Probes return the packed data as a long (zero for a miss) and the static
+ * accessors unpack it, so nothing is allocated per probe.
+ */
+public final class TranspositionTable {
+
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_SIZE = 2;
+
+    // data layout: move (20 bits) | score + offset (20 bits) | depth (8 bits) | bound (2 bits) | age (8 bits)
+    private static final int SCORE_SHIFT = 20;
+    private static final int DEPTH_SHIFT = 40;
+    private static final int BOUND_SHIFT = 48;
+    private static final int AGE_SHIFT = 50;
+    private static final int SCORE_OFFSET = 1 << 19;
+
+    private final long[] table;
+    private final int bucketMask;
+    private int age;
+
+    /**
+     * @param megabytes the memory budget; the table uses the largest power-of-two
+     *                  number of entries that fits
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("The table needs at least 1 MB");
+        }
+        long entries = Long.highestOneBit(megabytes * 1024L * 1024L / ENTRY_BYTES);
+        entries = Math.min(entries, 1L << 27);
+        table = new long[(int) (entries * 2)];
+        bucketMask = (int) (entries / BUCKET_SIZE) - 1;
+    }
+
+    /**
+     * Marks the start of a new search, so entries from earlier searches are
+     * replaced first.
+     */
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(table, 0L);
+    }
+
+    public int capacity() {
+        return table.length / 2;
+    }
+
+    /**
+     * @return the packed entry for the position, or 0 if there is none
+     */
+    public long probe(long key) {
+        int first = bucketIndex(key);
+        for (int slot = first; slot < first + BUCKET_SIZE * 2; slot += 2) {
+            long data = table[slot + 1];
+            if ((table[slot] ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores a search result for a position.
+     *
+     * @param key   the position key
+     * @param move  the best or refuting move as a packed move, or 0
+     * @param score the score relative to the root; mate scores are converted
+     *              to distance-from-this-position using {@code ply}
+     * @param depth the remaining depth the score was searched to
+     * @param bound one of the {@code BOUND_*} constants
+     * @param ply   the distance of this position from the root
+     */
+    public void store(long key, int move, int score, int depth, int bound, int ply) {
+        int first = bucketIndex(key);
+        int target = first;
+        int targetPriority = Integer.MAX_VALUE;
+        for (int slot = first; slot < first + BUCKET_SIZE * 2; slot += 2) {
+            long existing = table[slot + 1];
+            if (existing == 0 || (table[slot] ^ existing) == key) {
+                if (existing != 0 && move == 0) {
+                    move = move(existing);
+                }
+                target = slot;
+                break;
+            }
+            // Prefer to evict entries from older searches, then shallower ones.
+            int priority = depth(existing) + (age(existing) == age ? 256 : 0);
+            if (priority < targetPriority) {
+                targetPriority = priority;
+                target = slot;
+            }
+        }
+
+        long data = (move & 0xFFFFFL)
+                | ((long) (toStoredScore(score, ply) + SCORE_OFFSET) << SCORE_SHIFT)
+                | ((long) Math.min(depth, 0xFF) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) age << AGE_SHIFT);
+        table[target] = key ^ data;
+        table[target + 1] = data;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFFF);
+    }
+
+    /**
+     * @return the stored score converted back to be relative to the root
+     */
+    public static int score(long data, int ply) {
+        int stored = (int) ((data >>> SCORE_SHIFT) & 0xFFFFF) - SCORE_OFFSET;
+        if (stored >= Searcher.MATE - Searcher.MAX_PLY) {
+            return stored - ply;
+        } else if (stored <= -Searcher.MATE + Searcher.MAX_PLY) {
+            return stored + ply;
+        }
+        return stored;
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 0x3);
+    }
+
+    private static int age(long data) {
+        return (int) ((data >>> AGE_SHIFT) & 0xFF);
+    }
+
+    private static int toStoredScore(int score, int ply) {
+        if (score >= Searcher.MATE - Searcher.MAX_PLY) {
+            return score + ply;
+        } else if (score <= -Searcher.MATE + Searcher.MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private int bucketIndex(long key) {
+        int hash = (int) (key ^ (key >>> 32));
+        return (hash & bucketMask) * BUCKET_SIZE * 2;
+    }
+}
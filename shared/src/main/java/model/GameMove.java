@@ -0,0 +1,8 @@
+package model;
+
+/**
+ * One move of a game, as kept in the move log: the ply it was played at,
+ * counted from 1, and the move packed with {@link chess.PackedMove}.
+ */
+public record GameMove(int gameID, int ply, int move) {
+}
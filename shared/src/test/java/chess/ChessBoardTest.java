@@ -0,0 +1,33 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChessBoardTest {
+
+    private final Gson gson = new Gson();
+
+    @Test
+    void serializesAsRowsOfPieces() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+
+        String json = gson.toJson(board);
+
+        assertTrue(json.startsWith("{\"board\":[[{\"pieceColor\":\"WHITE\",\"type\":\"ROOK\"}"), json);
+        assertEquals(board, gson.fromJson(json, ChessBoard.class));
+    }
+
+    @Test
+    void keepsEmptySquaresEmpty() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(ChessPosition.of(4, 5), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+
+        ChessBoard reloaded = gson.fromJson(gson.toJson(board), ChessBoard.class);
+
+        assertEquals(board, reloaded);
+        assertNull(reloaded.getPiece(ChessPosition.of(1, 1)));
+    }
+}
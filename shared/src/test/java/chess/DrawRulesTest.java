@@ -0,0 +1,97 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DrawRulesTest {
+
+    @Test
+    void knightShuffleRepeatsThreeTimes() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        assertEquals(1, game.repetitions());
+        assertFalse(game.isThreefoldRepetition());
+
+        shuffleKnights(game);
+        assertEquals(2, game.repetitions());
+        assertTrue(game.isThreefoldRepetition());
+    }
+
+    @Test
+    void pawnMoveResetsTheClockAndTheHistory() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 5, 5, 5));
+        shuffleKnights(game);
+
+        assertEquals(4, game.halfmoveClock());
+        assertEquals(1, game.repetitions());
+    }
+
+    @Test
+    void unmakeRestoresTheClock() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        game.makeMove(move(2, 5, 4, 5));
+        assertEquals(0, game.halfmoveClock());
+
+        game.unmakeMove();
+        assertEquals(4, game.halfmoveClock());
+        assertEquals(1, game.repetitions());
+    }
+
+    @Test
+    void fiftyMovesWithoutProgress() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < ChessGame.FIFTY_MOVE_PLIES / 4; i++) {
+            assertFalse(game.isFiftyMoveDraw());
+            shuffleKnights(game);
+        }
+        assertTrue(game.isFiftyMoveDraw());
+    }
+
+    @Test
+    void historySurvivesSerialization() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        Gson gson = new Gson();
+
+        ChessGame reloaded = gson.fromJson(gson.toJson(game), ChessGame.class);
+        shuffleKnights(reloaded);
+
+        assertTrue(reloaded.isThreefoldRepetition());
+    }
+
+    @Test
+    void onlyRepeatableHistoryIsSerialized() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 5, 5, 5));
+        shuffleKnights(game);
+        shuffleKnights(game);
+        Gson gson = new Gson();
+
+        var json = gson.toJsonTree(game).getAsJsonObject();
+        ChessGame reloaded = gson.fromJson(json, ChessGame.class);
+
+        assertEquals(8, json.getAsJsonArray("keyHistory").size());
+        assertEquals(8, json.get("historySize").getAsInt());
+        assertEquals(game.repetitions(), reloaded.repetitions());
+        assertTrue(reloaded.isThreefoldRepetition());
+    }
+
+    private static void shuffleKnights(ChessGame game) throws InvalidMoveException {
+        game.makeMove(move(1, 7, 3, 6));
+        game.makeMove(move(8, 7, 6, 6));
+        game.makeMove(move(3, 6, 1, 7));
+        game.makeMove(move(6, 6, 8, 7));
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(ChessPosition.of(fromRow, fromCol), ChessPosition.of(toRow, toCol), null);
+    }
+}
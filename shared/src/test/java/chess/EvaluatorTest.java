@@ -0,0 +1,90 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorTest {
+
+    private final Evaluator evaluator = new Evaluator();
+
+    @Test
+    void startingPositionIsLevel() {
+        assertEquals(0, evaluator.evaluate(new ChessGame()));
+    }
+
+    @Test
+    void mirroredPositionsScoreTheSameForTheSideToMove() {
+        for (Perft.TestPosition position : Perft.TEST_POSITIONS) {
+            ChessGame game = position.game();
+            ChessGame mirrored = mirror(game);
+
+            assertEquals(evaluator.evaluate(game), evaluator.evaluate(mirrored), position.name());
+            assertEquals(evaluator.whiteScore(game), -evaluator.whiteScore(mirrored), position.name());
+        }
+    }
+
+    @Test
+    void extraMaterialIsBetter() {
+        ChessGame game = new ChessGame();
+        game.getBoard().removePiece(ChessPosition.of(8, 4));
+
+        assertTrue(evaluator.whiteScore(game) > 700);
+        assertTrue(evaluator.evaluate(game) > 700);
+    }
+
+    @Test
+    void passedPawnOutweighsBlockedOne() {
+        ChessGame passed = ChessGame.fromFen("4k3/8/8/3P4/8/8/8/4K3 w");
+        ChessGame blocked = ChessGame.fromFen("4k3/8/3p4/3P4/8/8/8/4K3 w");
+
+        assertTrue(evaluator.whiteScore(passed) > evaluator.whiteScore(blocked) + 100);
+    }
+
+    @Test
+    void incrementalScoresMatchARebuiltBoard() {
+        ChessGame game = Perft.TEST_POSITIONS.get(1).game();
+        MoveList moves = new MoveList();
+        int plies = 6;
+        for (int ply = 0; ply < plies; ply++) {
+            moves.clear();
+            game.legalMoves(moves);
+            game.makeMove(moves.get(ply % moves.size()));
+            assertDerivedStateMatches(game.getBoard());
+        }
+        for (int ply = 0; ply < plies; ply++) {
+            game.unmakeMove();
+            assertDerivedStateMatches(game.getBoard());
+        }
+    }
+
+    private static void assertDerivedStateMatches(ChessBoard board) {
+        ChessBoard rebuilt = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.pieceAt(square);
+            if (piece != null) {
+                rebuilt.addPiece(ChessBoard.position(square), piece);
+            }
+        }
+        assertEquals(rebuilt.key(), board.key());
+        assertEquals(rebuilt.pawnKey(), board.pawnKey());
+        assertEquals(rebuilt.midgameScore(), board.midgameScore());
+        assertEquals(rebuilt.endgameScore(), board.endgameScore());
+        assertEquals(rebuilt.phase(), board.phase());
+    }
+
+    private static ChessGame mirror(ChessGame game) {
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = game.getBoard().pieceAt(square);
+            if (piece != null) {
+                ChessGame.TeamColor color = ChessGame.opponent(piece.getTeamColor());
+                board.addPiece(ChessBoard.position(square ^ 56), ChessPiece.of(color, piece.getPieceType()));
+            }
+        }
+        ChessGame mirrored = new ChessGame();
+        mirrored.setBoard(board);
+        mirrored.setTeamTurn(ChessGame.opponent(game.getTeamTurn()));
+        return mirrored;
+    }
+}
@@ -0,0 +1,80 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FenTest {
+
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    @Test
+    void startingPosition() {
+        assertEquals(new ChessGame(), ChessGame.fromFen(START));
+        assertEquals(START, new ChessGame().toFen());
+    }
+
+    @Test
+    void roundTripsTestPositions() {
+        for (Perft.TestPosition position : Perft.TEST_POSITIONS) {
+            assertEquals(position.fen(), position.game().toFen(), position.name());
+        }
+    }
+
+    @Test
+    void tracksMoveCountersAndEnPassant() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", game.toFen());
+        assertEquals(1, game.ply());
+
+        game.makeMove(new ChessMove(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null));
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 1 2", game.toFen());
+        assertEquals(2, game.ply());
+
+        ChessGame parsed = ChessGame.fromFen(game.toFen());
+        assertEquals(game, parsed);
+        assertEquals(game.positionKey(), parsed.positionKey());
+    }
+
+    @Test
+    void trailingFieldsAreOptional() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K3 b");
+
+        assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        assertEquals("4k3/8/8/8/8/8/8/R3K3 b - - 0 1", game.toFen());
+    }
+
+    @Test
+    void largeHalfmoveClockSurvivesMakeAndUnmake() throws InvalidMoveException {
+        String fen = "4k3/8/8/8/8/8/8/R3K3 w - - " + Fen.MAX_HALFMOVE_CLOCK + " 200";
+        ChessGame game = ChessGame.fromFen(fen);
+        assertEquals(fen, game.toFen());
+
+        game.makeMove(new ChessMove(ChessPosition.of(1, 1), ChessPosition.of(2, 1), null));
+        game.unmakeMove();
+
+        assertEquals(fen, game.toFen());
+        assertTrue(game.isFiftyMoveDraw());
+    }
+
+    @Test
+    void rejectsHalfmoveClocksPastTheSeventyFiveMoveRule() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K3 w - - " + (Fen.MAX_HALFMOVE_CLOCK + 1) + " 200"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K3 w - - 200000 1"));
+    }
+
+    @Test
+    void rejectsMalformedText() {
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(""));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("rnbqkbnr/ppppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/4K3 w"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(START.replace(" w ", " x ")));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(START.replace("KQkq", "KQkz")));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(START.replace(" - ", " e4 ")));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(START + " 7"));
+    }
+}
@@ -0,0 +1,35 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftTest {
+
+    @Test
+    void publishedNodeCounts() {
+        for (Perft.TestPosition position : Perft.TEST_POSITIONS) {
+            for (int depth = 1; depth <= position.maxDepth(); depth++) {
+                assertEquals(position.expected()[depth - 1], Perft.perft(position.game(), depth),
+                        position.name() + " at depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    void perftLeavesGameUnchanged() {
+        ChessGame game = new ChessGame();
+        long key = game.positionKey();
+        Perft.perft(game, 3);
+        assertEquals(new ChessGame(), game);
+        assertEquals(key, game.positionKey());
+    }
+
+    @Test
+    void parallelMatchesSequential() {
+        ChessGame game = new ChessGame();
+        assertEquals(Perft.perft(game, 3), Perft.parallelPerft(game, 3, ForkJoinPool.commonPool()));
+    }
+}
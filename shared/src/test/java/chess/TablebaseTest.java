@@ -0,0 +1,101 @@
+package chess;
+
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.Searcher;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablebaseTest {
+
+    @TempDir
+    static Path directory;
+
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    static void generate() throws IOException {
+        TablebaseGenerator.writeAll(directory);
+        tablebase = Tablebase.open(directory);
+        ChessGame.useTablebase(tablebase);
+    }
+
+    @AfterAll
+    static void uninstall() {
+        ChessGame.useTablebase(null);
+    }
+
+    @Test
+    void longestWinsMatchPublishedDepths() throws IOException {
+        // KQK is mate in at most 10 moves and KRK in at most 16.
+        assertEquals(19, longestWin(Files.readAllBytes(directory.resolve("kqk.tb"))));
+        assertEquals(31, longestWin(Files.readAllBytes(directory.resolve("krk.tb"))));
+    }
+
+    @Test
+    void mateInOne() {
+        ChessGame game = ChessGame.fromFen("7k/Q7/6K1/8/8/8/8/8 w");
+
+        assertEquals(new Tablebase.Result(Tablebase.Outcome.WIN, 1), game.endgameResult());
+    }
+
+    @Test
+    void mirroredForBlack() {
+        ChessGame game = ChessGame.fromFen("8/8/8/8/8/6k1/q7/7K b");
+
+        assertEquals(new Tablebase.Result(Tablebase.Outcome.WIN, 1), game.endgameResult());
+    }
+
+    @Test
+    void checkmateFromTheTables() {
+        ChessGame game = ChessGame.fromFen("7k/6Q1/5K2/8/8/8/8/8 b");
+
+        assertEquals(new Tablebase.Result(Tablebase.Outcome.LOSS, 0), game.endgameResult());
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.status());
+    }
+
+    @Test
+    void undefendedQueenIsADraw() {
+        ChessGame game = ChessGame.fromFen("8/8/8/8/8/8/6Kq/k7 w");
+
+        assertEquals(new Tablebase.Result(Tablebase.Outcome.DRAW, 0), game.endgameResult());
+    }
+
+    @Test
+    void kingAndPawnEndings() {
+        // King on the sixth in front of its pawn wins whoever is to move.
+        assertEquals(Tablebase.Outcome.WIN,
+                ChessGame.fromFen("4k3/8/4K3/4P3/8/8/8/8 w").endgameResult().outcome());
+        assertEquals(Tablebase.Outcome.LOSS,
+                ChessGame.fromFen("4k3/8/4K3/4P3/8/8/8/8 b").endgameResult().outcome());
+        // A rook pawn cannot drive the defending king out of the corner.
+        assertEquals(Tablebase.Outcome.DRAW,
+                ChessGame.fromFen("k7/8/8/8/8/8/P7/K7 w").endgameResult().outcome());
+    }
+
+    @Test
+    void searchPlaysPerfectly() {
+        ChessGame game = ChessGame.fromFen("8/8/8/3k4/8/8/8/R2K4 w");
+        int plies = game.endgameResult().plies();
+
+        SearchResult result = new Searcher().bestMove(game, SearchLimits.depth(2));
+
+        assertEquals(Searcher.MATE - plies, result.score());
+    }
+
+    private static long longestWin(byte[] table) {
+        int longest = 0;
+        for (byte value : table) {
+            longest = Math.max(longest, value);
+        }
+        return longest;
+    }
+}
@@ -0,0 +1,110 @@
+package engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTest {
+
+    private static final String PGN = """
+            [Event "One"]
+            [Result "1-0"]
+
+            1. e4 e5 {main line} 2. Nf3 (2. Bc4 Nf6) Nc6 3. Bb5 a6 1-0
+
+            [Event "Two"]
+            [Result "1/2-1/2"]
+
+            1. e4 c5 2. Nf3 d6 1/2-1/2
+
+            [Event "Three"]
+            [Result "0-1"]
+
+            1.d4 d5 2.c4 $1 e6 0-1
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void weightsFollowResults() throws IOException {
+        try (OpeningBook book = build(PGN)) {
+            List<OpeningBook.BookMove> moves = book.moves(new ChessGame());
+
+            // 1. e4 won once and drew once; 1. d4 only lost, so it is left out.
+            assertEquals(List.of(new OpeningBook.BookMove(move(2, 5, 4, 5), 3)), moves);
+        }
+    }
+
+    @Test
+    void followsGamesAndSkipsVariations() throws IOException, InvalidMoveException {
+        try (OpeningBook book = build(PGN)) {
+            ChessGame game = new ChessGame();
+            game.makeMove(move(2, 5, 4, 5));
+            game.makeMove(move(7, 5, 5, 5));
+
+            List<OpeningBook.BookMove> moves = book.moves(game);
+
+            assertEquals(List.of(new OpeningBook.BookMove(move(1, 7, 3, 6), 2)), moves);
+            assertEquals(move(1, 7, 3, 6), book.pick(game, new Random(1)));
+        }
+    }
+
+    @Test
+    void unknownPositionHasNoMoves() throws IOException, InvalidMoveException {
+        try (OpeningBook book = build(PGN)) {
+            ChessGame game = new ChessGame();
+            game.makeMove(move(2, 1, 3, 1));
+
+            assertTrue(book.moves(game).isEmpty());
+            assertNull(book.pick(game, new Random(1)));
+        }
+    }
+
+    @Test
+    void parsesDisambiguationAndPromotion() {
+        ChessGame game = new ChessGame();
+        assertEquals(move(1, 2, 3, 3), OpeningBookBuilder.parseSan(game, "Nc3"));
+        assertEquals(move(1, 2, 3, 3), OpeningBookBuilder.parseSan(game, "Nbc3+"));
+        assertNull(OpeningBookBuilder.parseSan(game, "Nd4"));
+        assertNull(OpeningBookBuilder.parseSan(game, "O-O"));
+
+        ChessMove promotion = new ChessMove(ChessPosition.of(7, 1), ChessPosition.of(8, 1), ChessPiece.PieceType.QUEEN);
+        assertEquals(promotion, PackedMove.toChessMove(OpeningBook.fromPolyglot(OpeningBook.toPolyglot(promotion))));
+    }
+
+    @Test
+    void parsesCastling() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (String san : new String[]{"e4", "e5", "Nf3", "Nc6", "Bc4", "Bc5"}) {
+            game.makeMove(OpeningBookBuilder.parseSan(game, san));
+        }
+
+        assertEquals(move(1, 5, 1, 7), OpeningBookBuilder.parseSan(game, "O-O"));
+        assertNull(OpeningBookBuilder.parseSan(game, "O-O-O"));
+    }
+
+    private OpeningBook build(String pgn) throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(OpeningBookBuilder.DEFAULT_MAX_PLIES);
+        builder.addPgn(pgn);
+        Path path = directory.resolve("book.bin");
+        builder.write(path);
+        return OpeningBook.open(path);
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(ChessPosition.of(fromRow, fromCol), ChessPosition.of(toRow, toCol), null);
+    }
+}
@@ -0,0 +1,73 @@
+package engine;
+
+import chess.ChessGame;
+import chess.Perft;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSearcherTest {
+
+    private final SearchPool pool = new SearchPool(2);
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void singleThreadMatchesSearcher() {
+        ChessGame game = Perft.TEST_POSITIONS.get(2).game();
+
+        SearchResult expected = new Searcher(new TranspositionTable(4)).bestMove(game, SearchLimits.depth(4));
+        SearchResult actual = new ParallelSearcher(pool, 4).search(game, SearchLimits.depth(4), 1).join();
+
+        assertEquals(expected.move(), actual.move());
+        assertEquals(expected.score(), actual.score());
+        assertEquals(expected.nodes(), actual.nodes());
+        assertEquals(expected.principalVariation(), actual.principalVariation());
+    }
+
+    @Test
+    void helpersAreCappedByThePool() {
+        ChessGame game = new ChessGame();
+        ParallelSearcher searcher = new ParallelSearcher(pool, 4);
+
+        SearchResult result = searcher.search(game, SearchLimits.depth(5), 8).join();
+
+        assertNotNull(result.move());
+        assertEquals(5, result.depth());
+        assertFalse(searcher.isSearching());
+        assertEquals(0, pool.activeThreads());
+        assertEquals(new ChessGame(), game);
+    }
+
+    @Test
+    void stopEndsSearchEarly() {
+        ParallelSearcher searcher = new ParallelSearcher(pool, 4);
+
+        CompletableFuture<SearchResult> result = searcher.search(new ChessGame(), SearchLimits.time(60_000), 2);
+        searcher.stop();
+
+        assertNotNull(result.join().move());
+    }
+
+    @Test
+    void idleSearchIsSkippedWhenThePoolIsBusy() {
+        ParallelSearcher busy = new ParallelSearcher(pool, 4);
+        CompletableFuture<SearchResult> running = busy.search(new ChessGame(), SearchLimits.time(60_000), 2);
+        while (pool.activeThreads() < pool.maxThreads()) {
+            Thread.onSpinWait();
+        }
+
+        ParallelSearcher idle = new ParallelSearcher(pool, 4);
+        assertNull(idle.searchIdle(new ChessGame(), SearchLimits.time(60_000)).join());
+
+        busy.stop();
+        running.join();
+        assertNotNull(idle.searchIdle(new ChessGame(), SearchLimits.depth(3)).join());
+    }
+}
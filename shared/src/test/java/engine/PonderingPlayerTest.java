@@ -0,0 +1,96 @@
+package engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PonderingPlayerTest {
+
+    private final SearchPool pool = new SearchPool(2);
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void predictedReplyIsAPonderHit() throws InvalidMoveException {
+        PonderingPlayer player = new PonderingPlayer(pool, 4, 300, 10_000, 1);
+        ChessGame game = new ChessGame();
+
+        SearchResult first = player.play(game).join();
+        List<ChessMove> line = first.principalVariation();
+        assertTrue(line.size() >= 2);
+        game.makeMove(line.get(0));
+        game.makeMove(line.get(1));
+
+        SearchResult second = player.play(game).join();
+
+        assertNotNull(second.move());
+        assertEquals(1, player.ponderHits());
+        assertEquals(0, player.ponderMisses());
+        player.close();
+    }
+
+    @Test
+    void otherReplyIsAPonderMiss() throws InvalidMoveException {
+        PonderingPlayer player = new PonderingPlayer(pool, 4, 300, 10_000, 1);
+        ChessGame game = new ChessGame();
+
+        SearchResult first = player.play(game).join();
+        ChessMove predicted = first.principalVariation().get(1);
+        game.makeMove(first.move());
+        ChessMove reply = game.validMoves(predicted.getStartPosition()).stream()
+                .filter(move -> !move.equals(predicted))
+                .findFirst()
+                .orElseThrow();
+        game.makeMove(reply);
+
+        SearchResult second = player.play(game).join();
+
+        assertNotNull(second.move());
+        assertTrue(game.validMoves(second.move().getStartPosition()).contains(second.move()));
+        assertEquals(0, player.ponderHits());
+        assertEquals(1, player.ponderMisses());
+        player.close();
+    }
+
+    @Test
+    void ponderingGivesWayToARealSearch() throws Exception {
+        try (SearchPool single = new SearchPool(1)) {
+            PonderingPlayer player = new PonderingPlayer(single, 4, 300, 60_000, 1);
+            ChessGame game = new ChessGame();
+            SearchResult first = player.play(game).join();
+            awaitActiveThreads(single, 1);
+
+            SearchResult other = new ParallelSearcher(single, 4)
+                    .search(new ChessGame(), SearchLimits.depth(3), 1)
+                    .get(10, TimeUnit.SECONDS);
+            assertNotNull(other.move());
+
+            game.makeMove(first.principalVariation().get(0));
+            game.makeMove(first.principalVariation().get(1));
+            SearchResult second = player.play(game).get(10, TimeUnit.SECONDS);
+
+            assertNotNull(second.move());
+            assertTrue(second.depth() > 1);
+            assertEquals(1, player.ponderHits());
+            player.close();
+        }
+    }
+
+    private static void awaitActiveThreads(SearchPool pool, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pool.activeThreads() != expected) {
+            assertTrue(System.nanoTime() < deadline, "the ponder search never started");
+            Thread.sleep(10);
+        }
+    }
+}
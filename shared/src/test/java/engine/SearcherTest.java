@@ -0,0 +1,84 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearcherTest {
+
+    @Test
+    void findsMateInOne() {
+        // Back-rank mate: Ra1-a8#.
+        ChessGame game = gameWith(ChessGame.TeamColor.WHITE,
+                piece(1, 1, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                piece(1, 7, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(8, 7, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING),
+                piece(7, 6, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
+                piece(7, 7, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
+                piece(7, 8, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+
+        SearchResult result = new Searcher().bestMove(game, SearchLimits.depth(3));
+
+        assertEquals(new ChessMove(ChessPosition.of(1, 1), ChessPosition.of(8, 1), null), result.move());
+        assertTrue(result.score() >= Searcher.MATE - SearchLimits.MAX_DEPTH);
+    }
+
+    @Test
+    void capturesHangingQueen() {
+        ChessGame game = gameWith(ChessGame.TeamColor.BLACK,
+                piece(1, 5, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(4, 4, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN),
+                piece(8, 5, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING),
+                piece(6, 3, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+
+        SearchResult result = new Searcher().bestMove(game, SearchLimits.depth(4));
+
+        assertEquals(ChessPosition.of(4, 4), result.move().getEndPosition());
+    }
+
+    @Test
+    void searchLeavesGameUnchanged() {
+        ChessGame game = new ChessGame();
+        long key = game.positionKey();
+
+        SearchResult result = new Searcher().bestMove(game, SearchLimits.nodes(20_000));
+
+        assertNotNull(result.move());
+        assertEquals(new ChessGame(), game);
+        assertEquals(key, game.positionKey());
+    }
+
+    @Test
+    void noMoveWhenCheckmated() {
+        // Queen on g7 guarded by the king on f6.
+        ChessGame game = gameWith(ChessGame.TeamColor.BLACK,
+                piece(6, 6, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(7, 7, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN),
+                piece(8, 8, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+
+        assertNull(new Searcher().bestMove(game, SearchLimits.depth(2)).move());
+    }
+
+    private record Placement(int row, int col, ChessPiece piece) {
+    }
+
+    private static Placement piece(int row, int col, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return new Placement(row, col, ChessPiece.of(color, type));
+    }
+
+    private static ChessGame gameWith(ChessGame.TeamColor toMove, Placement... placements) {
+        ChessBoard board = new ChessBoard();
+        for (Placement placement : placements) {
+            board.addPiece(ChessPosition.of(placement.row(), placement.col()), placement.piece());
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(toMove);
+        return game;
+    }
+}
@@ -0,0 +1,45 @@
+package engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    @Test
+    void storedEntryIsFound() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x1234_5678_9ABC_DEF0L;
+
+        table.store(key, 0x1ABC, -250, 7, TranspositionTable.BOUND_LOWER, 3);
+        long entry = table.probe(key);
+
+        assertEquals(0x1ABC, TranspositionTable.move(entry));
+        assertEquals(-250, TranspositionTable.score(entry, 3));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.bound(entry));
+    }
+
+    @Test
+    void otherKeyInSameBucketMisses() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x0F0F_0F0F_0000_0001L;
+        long collidingKey = key ^ (0xABCDL << 32) ^ 0xABCDL;
+
+        table.store(key, 1, 0, 1, TranspositionTable.BOUND_EXACT, 0);
+
+        assertEquals(0L, table.probe(collidingKey));
+        assertEquals(0L, new TranspositionTable(1).probe(key));
+    }
+
+    @Test
+    void mateScoresAreStoredRelativeToThePosition() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 42L;
+
+        // Mate found 5 plies below a node at ply 2 is mate in 3 from the node.
+        table.store(key, 0, Searcher.MATE - 5, 4, TranspositionTable.BOUND_EXACT, 2);
+
+        assertEquals(Searcher.MATE - 7, TranspositionTable.score(table.probe(key), 4));
+    }
+}